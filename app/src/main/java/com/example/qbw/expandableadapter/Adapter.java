@@ -78,8 +78,7 @@ public class Adapter extends ExpandableAdapter<BaseEntity> implements StickyLayo
     }
 
     @Override
-    public int getItemViewType(int position) {
-        BaseEntity entity = getItem(position);
+    public int getItemViewType(BaseEntity entity) {
         if (entity instanceof Header) {
             return Type.HEADER;
         } else if (entity instanceof Child) {
@@ -95,7 +94,7 @@ public class Adapter extends ExpandableAdapter<BaseEntity> implements StickyLayo
         } else if (entity instanceof Header1) {
             return Type.HEADER1;
         }
-        return super.getItemViewType(position);
+        return super.getItemViewType(entity);
     }
 
     @Override
@@ -21,6 +21,7 @@ import com.example.qbw.expandableadapter.entity.GroupChild;
 import com.example.qbw.expandableadapter.entity.Header;
 import com.example.qbw.expandableadapter.entity.Header1;
 import com.qbw.log.XLog;
+import com.qbw.recyclerview.expandable.SectionBuilder;
 import com.qbw.recyclerview.expandable.StickyLayout;
 
 import java.text.SimpleDateFormat;
@@ -130,23 +131,26 @@ public class MainActivity extends Activity {
 
     private void test() {
         XLog.d(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss sss").format(System.currentTimeMillis()));
+        SectionBuilder<BaseEntity> builder = new SectionBuilder<>();
         for (int i = 0; i < 5; i++) {
-            mAdapter.addHeader(new Header("header " + i));
+            builder.addHeader(new Header("header " + i));
         }
         for (int i = 0; i < 5; i++) {
-            mAdapter.addChild(new Child("child " + i));
+            builder.addChild(new Child("child " + i));
         }
 
         for (int i = 0; i < 100; i++) {
-            int groupPos = mAdapter.addGroup(new Group("group " + i));
+            List<BaseEntity> groupChilds = new ArrayList<>(100);
             for (int j = 0; j < 100; j++) {
-                mAdapter.addGroupChild(groupPos, new GroupChild("groupchild " + i + "," + j));
+                groupChilds.add(new GroupChild("groupchild " + i + "," + j));
             }
+            builder.addGroup(new Group("group " + i), groupChilds);
         }
 
         for (int i = 0; i < 5; i++) {
-            mAdapter.addFooter(new Footer("footer " + i));
+            builder.addFooter(new Footer("footer " + i));
         }
+        mAdapter.setSections(builder);//一次性添加，只通知一次刷新
 
         mAdapter.addHeader(0, new Header("random header 0"));
         mAdapter.addHeader(2, new Header("random header 2"));
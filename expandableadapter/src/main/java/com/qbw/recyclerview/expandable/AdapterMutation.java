@@ -0,0 +1,12 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * 通过{@link ExpandableAdapter#postMutation(Object, AdapterMutation)}在任意线程提交，在主线程执行的修改
+ */
+public interface AdapterMutation<T> {
+
+    /**
+     * 主线程调用，直接调用adapter的addXXX、removeXXX、updateXXX即可
+     */
+    void apply(ExpandableAdapter<T> adapter);
+}
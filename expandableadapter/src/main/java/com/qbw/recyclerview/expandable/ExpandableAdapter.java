@@ -1,1274 +1,1050 @@
 package com.qbw.recyclerview.expandable;
 
+import android.support.v7.widget.RecyclerView;
+
 import com.qbw.log.XLog;
 import com.qbw.recyclerview.base.BaseExpandableAdapter;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by Bond on 2016/4/2.
+ * 数据以及位置换算都在{@link ExpandableModel}里面（不依赖android），adapter把model的通知转发给RecyclerView，
+ * 并负责在后台加载groupChild、计算差异、过滤以及执行其它线程提交的修改。数据相关方法的说明见ExpandableModel
  */
 public abstract class ExpandableAdapter<T> extends BaseExpandableAdapter<T> {
 
-    private List<T> mList;
+    /**
+     * submitSections计算期间adapter被修改时最多重新计算的次数
+     */
+    private static final int MAX_DIFF_RETRIES = 3;
+
+    static {
+        if (ModelLog.getPrinter() == null) {
+            ModelLog.setPrinter(new XLogPrinter());
+        }
+    }
+
+    private final ExpandableModel<T> mModel;
+
+    /**
+     * 延迟加载groupChild，见{@link #addLazyGroup(int, Object, boolean)}
+     */
+    private final GroupChildLoader<T> mGroupChildLoader;
+
+    /**
+     * 见{@link #submitSections(SectionBuilder)}
+     */
+    private final SectionDiffer<T> mSectionDiffer = new SectionDiffer<>(this);
+    /**
+     * 见{@link #MAX_DIFF_RETRIES}
+     */
+    private int mDiffRetryCount;
+
+    /**
+     * 其它线程提交的修改，见{@link #postMutation(Object, AdapterMutation)}
+     */
+    private final MutationQueue<T> mMutationQueue = new MutationQueue<>(this);
 
-    private int mHeaderCount;
-    private int mChildCount;
-    private int mGroupCount;
-    private List<Integer> mGroupChildCount;
-    private int mGroupAndGroupChildCount;
-    private int mFooterCount;
+    /**
+     * 见{@link #filter(CharSequence)}
+     */
+    private final SectionFilter<T> mSectionFilter = new SectionFilter<>(this);
+
+    /**
+     * 子类是否重写了{@link #getItemViewType(int)}
+     */
+    private final boolean mViewTypeOverridden;
+    /**
+     * model通过重写的getItemViewType(int)计算viewType期间为true，这时调用super不再访问model
+     */
+    private boolean mResolvingViewType;
 
     public ExpandableAdapter() {
-        mList = new ArrayList<>();
+        mViewTypeOverridden = isViewTypeOverridden(getClass());
+        ModelBridge bridge = new ModelBridge();
+        mModel = new ExpandableModel<>(bridge);
+        mModel.setItemViewTypeProvider(bridge);
+        mGroupChildLoader = new GroupChildLoader<>(mModel);
+        mModel.setGroupChildRequester(mGroupChildLoader);
+    }
+
+    private static boolean isViewTypeOverridden(Class<?> cls) {
+        try {
+            return cls.getMethod("getItemViewType", int.class).getDeclaringClass() != ExpandableAdapter.class;
+        } catch (NoSuchMethodException e) {
+            XLog.e("Find getItemViewType failed, %s", e.toString());
+            return false;
+        }
+    }
+
+    public final ExpandableModel<T> getModel() {
+        return mModel;
+    }
+
+    /**
+     * 设置了{@link #setItemKeyProvider(ItemKeyProvider)}时返回item的稳定id，否则返回position
+     */
+    @Override
+    public long getItemId(int position) {
+        return mModel.getItemId(position);
+    }
+
+    /**
+     * 需要在setAdapter之前调用，见{@link ExpandableModel#setItemKeyProvider(ItemKeyProvider)}
+     */
+    public final void setItemKeyProvider(ItemKeyProvider<T> provider) {
+        if (hasObservers()) {
+            XLog.e("Call setItemKeyProvider before RecyclerView.setAdapter");
+            return;
+        }
+        mModel.setItemKeyProvider(provider);
+        setHasStableIds(provider != null);
     }
 
+    /**
+     * viewType第一次获取时通过{@link #getItemViewType(Object)}计算并缓存，之后直接读取缓存；
+     * item的viewType改变之后需要调用{@link #invalidateItemViewType(int)}。
+     * 子类重写了这个方法时，model（PositionByViewType、removeXXXByViewType等）缓存的是重写之后的返回值，
+     * 重写的方法里面调用super得到的是{@link #getItemViewType(Object)}的结果
+     */
     @Override
     public int getItemViewType(int position) {
-        int vt = getItemViewType(mList.get(position));
+        if (mResolvingViewType) {
+            return resolveItemViewType(getItem(position), position);
+        }
+        return mModel.getItemViewType(position);
+    }
+
+    private int resolveItemViewType(T item, int position) {
+        int vt = getItemViewType(item);
         return vt == -1 ? super.getItemViewType(position) : vt;
     }
 
+    /**
+     * @return -1时使用RecyclerView.Adapter默认的viewType
+     */
     public int getItemViewType(T t) {
         return -1;
     }
 
+    public final void invalidateItemViewType(int itemPosition) {
+        mModel.invalidateItemViewType(itemPosition);
+    }
+
+    public final void invalidateItemViewTypes() {
+        mModel.invalidateItemViewTypes();
+    }
+
     @Override
     public final T getItem(int itemPosition) {
-        return mList.get(itemPosition);
+        return mModel.getItem(itemPosition);
+    }
+
+    public final void setItemIndexEnabled(boolean enabled) {
+        mModel.setItemIndexEnabled(enabled);
+    }
+
+    public final boolean isItemIndexEnabled() {
+        return mModel.isItemIndexEnabled();
     }
 
     public final int getItemPosition(T item) {
-        return mList.indexOf(item);
+        return mModel.getItemPosition(item);
     }
 
     public final void removeItem(int itemPosition) {
-        if (!checkItemPosition(itemPosition)) {
+        mModel.removeItem(itemPosition);
+    }
+
+    public final void swapItem(int sourcePosition, int targetPosition) {
+        mModel.swapItem(sourcePosition, targetPosition);
+    }
+
+    public final void updateItem(int itemPosition, T item) {
+        mModel.updateItem(itemPosition, item);
+    }
+
+    public final void clear() {
+        mSectionDiffer.cancel();
+        mSectionFilter.reset();
+        mModel.clear();
+    }
+
+    public final void setSections(SectionBuilder<T> builder) {
+        if (!mModel.checkSectionBuilder(builder)) {
             return;
         }
-        if (mHeaderCount > 0 && itemPosition < mHeaderCount) {
-            mHeaderCount--;
-        } else if (mChildCount > 0 && itemPosition < mHeaderCount + mChildCount) {
-            mChildCount--;
-        } else if (mGroupCount > 0 && itemPosition < mHeaderCount + mChildCount + getGroupAndGroupChildCount()) {
-            int groupPosition = getGroupPosition(itemPosition);
-            if (groupPosition != -1) {
-                removeGroup(groupPosition);
-                return;
-            } else {
-                int[] groupChildPosition = getGroupChildPosition(itemPosition);
-                removeGroupChild(groupChildPosition[0], groupChildPosition[1]);
-                return;
-            }
-        } else if (mFooterCount > 0 && itemPosition >= mList.size() - mFooterCount) {
-            mFooterCount--;
-        } else {
-            XLog.w("Remove item failed!");
+        mSectionFilter.reset();
+        mSectionDiffer.cancel();
+        mModel.setSections(builder);
+    }
+
+    /**
+     * 在后台线程计算当前数据与builder之间的差异，然后在主线程用builder替换当前数据，
+     * 并按照差异发出插入、删除、修改的通知，保留滑动位置和动画。
+     * 新提交的会取消之前还没有完成的提交。
+     * 计算期间adapter被修改过（包括展开收起group）的话，丢弃这次结果，用修改之后的数据重新计算，
+     * 连续{@value #MAX_DIFF_RETRIES}次都被修改时直接替换并通知notifyDataSetChanged。
+     * builder是替换之后的完整数据，提交之后、替换之前对header、child、group、groupChild、footer的增删改会被builder覆盖，
+     * 需要保留的话在submitSections之前修改或者提交包含这些修改的builder。
+     * item通过equals判断是否是同一个，{@link #areContentsTheSame(Object, Object)}判断内容是否变化，
+     * 已经存在的group保留替换时的展开状态
+     */
+    public final void submitSections(SectionBuilder<T> builder) {
+        if (!mModel.checkSectionBuilder(builder)) {
             return;
         }
-        mList.remove(itemPosition);
-        notifyItemRemoved(itemPosition);
+        mSectionFilter.reset();
+        diffSections(builder);
     }
 
-    public final void swapItem(int sourcePosition, int targetPosition) {
-        int itemCount = getItemCount();
-        if (sourcePosition < 0 || sourcePosition >= itemCount) {
-            XLog.e("Invalid sourcePosition %d", sourcePosition);
+    private void diffSections(SectionBuilder<T> builder) {
+        builder.mConsumed = true;
+        mDiffRetryCount = 0;
+        mSectionDiffer.submit(mModel.snapshot(), builder, mModel.getModCount());
+    }
+
+    public final void setItemFilter(ItemFilter<T> filter) {
+        clearFilter();
+        mSectionFilter.setFilter(filter);
+    }
+
+    /**
+     * 在后台线程过滤header、child、group、groupChild、footer，结果通过{@link #submitSections(SectionBuilder)}的方式刷新，
+     * constraint为空时等同于{@link #clearFilter()}。
+     * 第一次过滤时保存adapter当前的数据，之后每次都过滤保存的数据，原数据在clearFilter时恢复；
+     * 过滤期间对adapter的修改在clearFilter之后会丢失。不支持分页group以及还没有加载的延迟加载group。
+     * constraint（比如EditText的Editable）在调用时通过toString保存下来，之后的修改不影响这次过滤
+     */
+    public final void filter(CharSequence constraint) {
+        if (mSectionFilter.getFilter() == null) {
+            XLog.e("No item filter, call setItemFilter first");
             return;
-        } else if (targetPosition < 0 || targetPosition >= itemCount) {
-            XLog.e("Invalid targetPosition %d", targetPosition);
+        } else if (constraint == null || constraint.length() == 0) {
+            clearFilter();
             return;
         }
-        Collections.swap(mList, sourcePosition, targetPosition);
-        notifyItemMoved(sourcePosition, targetPosition);
+        if (mSectionFilter.mSource == null) {
+            if (!mModel.checkFilterable()) {
+                return;
+            }
+            mSectionFilter.mSource = mModel.snapshot();
+        }
+        mSectionFilter.filter(constraint.toString());
     }
 
-    public final void updateItem(int itemPosition, T item) {
-        if (!checkItemPosition(itemPosition)) {
+    /**
+     * 恢复过滤之前的数据
+     */
+    public final void clearFilter() {
+        ExpandableSnapshot<T> source = mSectionFilter.mSource;
+        if (source == null) {
             return;
         }
-        mList.set(itemPosition, item);
-        notifyItemChanged(itemPosition);
+        mSectionFilter.reset();
+        diffSections(SectionFilter.build(source));
     }
 
-    public final void clear() {
-        mList.clear();
-        mHeaderCount = 0;
-        mChildCount = 0;
-        mGroupCount = 0;
-        mGroupAndGroupChildCount = 0;
-        if (mGroupChildCount != null) {
-            mGroupChildCount.clear();
+    public final boolean isFiltering() {
+        return mSectionFilter.mSource != null;
+    }
+
+    /**
+     * 主线程，SectionFilter过滤完成
+     */
+    final void onSectionsFiltered(SectionFilter.Result result,
+                                  String constraint,
+                                  SectionBuilder<T> builder,
+                                  int generation) {
+        if (generation != mSectionFilter.getGeneration()) {
+            return;
+        }
+        mSectionFilter.mResult = result;
+        mSectionFilter.mConstraint = constraint;
+        diffSections(builder);
+    }
+
+    /**
+     * submitSections计算差异以及filter过滤所在的线程池，默认AsyncTask.THREAD_POOL_EXECUTOR
+     */
+    public final void setDiffExecutor(Executor executor) {
+        mSectionDiffer.setExecutor(executor);
+        mSectionFilter.setExecutor(executor);
+    }
+
+    /**
+     * submitSections时在后台线程调用，oldItem.equals(newItem)的两个item内容是否相同，不相同的会通知修改，默认比较是否是同一个对象
+     */
+    public boolean areContentsTheSame(T oldItem, T newItem) {
+        return oldItem == newItem;
+    }
+
+    /**
+     * 主线程，SectionDiffer计算完成，ops是(type, position, count)三元组，按顺序发出即可
+     */
+    final void onSectionsDiffed(SectionBuilder<T> builder, IntArray ops, int generation, int modCount) {
+        if (generation != mSectionDiffer.getGeneration()) {
+            return;
+        } else if (modCount != mModel.getModCount()) {
+            if (mDiffRetryCount < MAX_DIFF_RETRIES) {
+                XLog.w("Adapter was modified during diff, diff again");
+                mDiffRetryCount++;
+                mSectionDiffer.submit(mModel.snapshot(), builder, mModel.getModCount());
+                return;
+            }
+            XLog.w("Adapter kept changing during diff, notify data set changed");
+            mModel.swapSections(builder);
+            mModel.dispatchDataSetChanged();
+            return;
         }
-        mFooterCount = 0;
-        notifyDataSetChanged();
+        mModel.swapSections(builder);
+        mModel.beginBatch();
+        for (int i = 0, size = ops.size(); i < size; i += 3) {
+            int position = ops.get(i + 1);
+            int count = ops.get(i + 2);
+            switch (ops.get(i)) {
+                case SectionDiffer.INSERT:
+                    mModel.dispatchItemRangeInserted(position, count);
+                    break;
+                case SectionDiffer.REMOVE:
+                    mModel.dispatchItemRangeRemoved(position, count);
+                    break;
+                case SectionDiffer.CHANGE:
+                    mModel.dispatchItemRangeChanged(position, count, null);
+                    break;
+            }
+        }
+        mModel.endBatch();
     }
 
     public final int addHeader(T header) {
-        return addHeader(mHeaderCount, header, null);
+        return mModel.addHeader(header);
     }
 
     public final int addHeader(int headerPosition, T header) {
-        return addHeader(headerPosition, header, null);
+        return mModel.addHeader(headerPosition, header);
     }
 
     public final int addHeader(List<T> headerList) {
-        return addHeader(mHeaderCount, null, headerList);
+        return mModel.addHeader(headerList);
     }
 
     public final int addHeader(int headerPosition, List<T> headerList) {
-        return addHeader(headerPosition, null, headerList);
-    }
-
-    private final int addHeader(int headerPosition, T header, List<T> headerList) {
-        if (headerPosition < 0) {
-            XLog.e("Invalid header position %d", headerPosition);
-            return -1;
-        } else if (header == null && (headerList == null || headerList.isEmpty())) {
-            XLog.e("Invalid header parameter");
-            return -1;
-        }
-        if (headerPosition > mHeaderCount) {
-            headerPosition = mHeaderCount;
-        }
-        int itemPosition = headerPosition;
-        int itemAddSize;
-        if (header != null) {
-            mList.add(itemPosition, header);
-            itemAddSize = 1;
-        } else {
-            mList.addAll(itemPosition, headerList);
-            itemAddSize = headerList.size();
-        }
-        XLog.v("Notify item from %d, count is %d", itemPosition, itemAddSize);
-        mHeaderCount += itemAddSize;
-        notifyItemRangeInserted(itemPosition, itemAddSize);
-        return headerPosition;
+        return mModel.addHeader(headerPosition, headerList);
     }
 
     public final void removeHeader(T header) {
-        int itemPosition = mList.indexOf(header);
-        if (itemPosition == -1) {
-            XLog.e("Remove header fiiled for not finding the header position");
-            return;
-        }
-        mList.remove(itemPosition);
-        mHeaderCount--;
-        notifyItemRemoved(itemPosition);
+        mModel.removeHeader(header);
     }
 
     public final void removeHeaders(List<T> headers) {
-        int size = headers != null ? headers.size() : 0;
-        for (int i = 0; i < size; i++) {
-            removeHeader(headers.get(i));
-        }
+        mModel.removeHeaders(headers);
     }
 
     public final void removeHeader(int headerPosition) {
-        removeHeader(headerPosition, 1);
+        mModel.removeHeader(headerPosition);
     }
 
     public final void clearHeader() {
-        removeHeader(0, mHeaderCount);
+        mModel.clearHeader();
     }
 
     public final void clearHeader(int headerBeginPosition) {
-        removeHeader(headerBeginPosition, mHeaderCount - headerBeginPosition);
+        mModel.clearHeader(headerBeginPosition);
     }
 
     public final void removeHeader(int headerBeginPosition, int removeCount) {
-        if (!checkHeaderPosition(headerBeginPosition)) {
-            return;
-        } else if (removeCount <= 0) {
-            XLog.e("Invalid header removeCount %d", removeCount);
-            return;
-        }
-        int itemBeginPosition = headerBeginPosition;
-        int itemEndPosition = headerBeginPosition + removeCount;
-        if (itemEndPosition > mHeaderCount) {
-            itemEndPosition = mHeaderCount;
-            int oldRemoveCount = removeCount;
-            removeCount = itemEndPosition - itemBeginPosition;
-            XLog.i("Reset removeCount from %d to %d", oldRemoveCount, removeCount);
-        }
-        mList.subList(itemBeginPosition, itemEndPosition).clear();
-        notifyItemRangeRemoved(itemBeginPosition, removeCount);
-        mHeaderCount -= removeCount;
+        mModel.removeHeader(headerBeginPosition, removeCount);
     }
 
     public final List<T> getHeaders() {
-        if (mHeaderCount <= 0 || getItemCount() <= 0) {
-            XLog.w("No header items");
-            return null;
-        }
-        return new ArrayList<>(mList.subList(0, mHeaderCount));
+        return mModel.getHeaders();
     }
 
     public final T getHeader(int headerPosition) {
-        if (!checkHeaderPosition(headerPosition)) {
-            return null;
-        }
-        return mList.get(headerPosition);
+        return mModel.getHeader(headerPosition);
     }
 
-
     public final void updateHeader(int headerPosition, T header) {
-        if (!checkHeaderPosition(headerPosition)) {
-            return;
-        }
-        mList.set(headerPosition, header);
-        notifyItemChanged(headerPosition);
+        mModel.updateHeader(headerPosition, header);
     }
 
     public final void notifyHeaderChanged(int headerPosition) {
-        if (!checkHeaderPosition(headerPosition)) {
-            return;
-        }
-        notifyItemChanged(headerPosition);
+        mModel.notifyHeaderChanged(headerPosition);
     }
 
-    @Override
-    public final int getHeaderCount() {
-        return mHeaderCount;
+    public final void notifyHeaderChanged(int headerPosition, Object payload) {
+        mModel.notifyHeaderChanged(headerPosition, payload);
     }
 
-    private boolean checkHeaderPosition(int headerPosition) {
-        if (headerPosition < 0) {
-            XLog.w("Invalid header position %d", headerPosition);
-            return false;
-        } else if (headerPosition >= mHeaderCount) {
-            XLog.w("Invalid header position %d, header size is %d", headerPosition, mHeaderCount);
-            return false;
-        }
-        return true;
+    public final void notifyHeaderRangeChanged(int headerBeginPosition, int changeCount, Object payload) {
+        mModel.notifyHeaderRangeChanged(headerBeginPosition, changeCount, payload);
+    }
+
+    @Override
+    public final int getHeaderCount() {
+        return mModel.getHeaderCount();
     }
 
     public final int getHeaderPosition(int itemPosition) {
-        if (!checkItemPosition(itemPosition) || itemPosition >= mHeaderCount) {
-            return -1;
-        }
-        return itemPosition;
+        return mModel.getHeaderPosition(itemPosition);
     }
 
     public final int getHeaderPosition(T header) {
-        return mList.indexOf(header);
+        return mModel.getHeaderPosition(header);
     }
 
     public final int convertHeaderPosition(int headerPosition) {
-        if (!checkHeaderPosition(headerPosition)) {
-            return -1;
-        }
-        return headerPosition;
+        return mModel.convertHeaderPosition(headerPosition);
     }
 
     public final int addChild(T child) {
-        return addChild(mChildCount, child, null);
+        return mModel.addChild(child);
     }
 
     public final int addChild(int childPosition, T child) {
-        return addChild(childPosition, child, null);
+        return mModel.addChild(childPosition, child);
     }
 
     public final int addChild(List<T> childList) {
-        return addChild(mChildCount, null, childList);
+        return mModel.addChild(childList);
     }
 
     public final int addChild(int childPosition, List<T> childList) {
-        return addChild(childPosition, null, childList);
+        return mModel.addChild(childPosition, childList);
     }
 
     public final int addChild(int childPosition, T child, List<T> childList) {
-        if (childPosition < 0) {
-            XLog.e("Invalid child position %d", childPosition);
-            return -1;
-        } else if (null == child && (null == childList || childList.isEmpty())) {
-            XLog.e("Invalid child parameter");
-            return -1;
-        }
-        if (childPosition > mChildCount) {
-            childPosition = mChildCount;
-        }
-        int itemPosition = mHeaderCount + childPosition;
-        int addSize;
-        if (child != null) {
-            mList.add(itemPosition, child);
-            addSize = 1;
-        } else {
-            mList.addAll(itemPosition, childList);
-            addSize = childList.size();
-        }
-        XLog.v("Notify item from %d, count is %d", itemPosition, addSize);
-        mChildCount += addSize;
-        notifyItemRangeInserted(itemPosition, addSize);
-        return childPosition;
+        return mModel.addChild(childPosition, child, childList);
     }
 
     public final void removeChild(int childPosition) {
-        removeChild(childPosition, 1);
+        mModel.removeChild(childPosition);
     }
 
     public final void removeChild(T child) {
-        int itemPosition = indexOfChild(child);
-        if (itemPosition == -1) {
-            XLog.e("Remove the child failed for not finding the child position");
-            return;
-        }
-        mList.remove(itemPosition);
-        notifyItemRemoved(itemPosition);
-        mChildCount--;
+        mModel.removeChild(child);
     }
 
     public final void removeChilds(List<T> childs) {
-        int size = childs != null ? childs.size() : 0;
-        for (int i = 0; i < size; i++) {
-            removeChild(childs.get(i));
-        }
+        mModel.removeChilds(childs);
     }
 
     public final void clearChild(int childBeginPosition) {
-        removeChild(childBeginPosition, mChildCount - childBeginPosition);
+        mModel.clearChild(childBeginPosition);
     }
 
     public final void clearChild() {
-        removeChild(0, mChildCount);
+        mModel.clearChild();
     }
 
     public final void removeChild(int childBeginPosition, int removeCount) {
-        if (!checkChildPosition(childBeginPosition)) {
-            return;
-        } else if (removeCount <= 0) {
-            XLog.e("Invalid child removeCount %d", removeCount);
-            return;
-        }
-        int itemBeginPosition = convertChildPosition(childBeginPosition);
-        int headerChildCount = mHeaderCount + mChildCount;
-        int itemEndPosition = itemBeginPosition + removeCount;
-        if (itemEndPosition > headerChildCount) {
-            itemEndPosition = headerChildCount;
-            int oldRemoveCount = removeCount;
-            removeCount = itemEndPosition - itemBeginPosition;
-            XLog.i("Reset child removeCount from %d to %d", oldRemoveCount, removeCount);
-        }
-        mList.subList(itemBeginPosition, itemEndPosition).clear();
-        mChildCount -= removeCount;
-        notifyItemRangeRemoved(itemBeginPosition, removeCount);
+        mModel.removeChild(childBeginPosition, removeCount);
     }
 
     public final List<T> getChilds() {
-        if (mChildCount <= 0 || getItemCount() <= 0) {
-            XLog.w("No child items");
-            return null;
-        }
-        return new ArrayList<>(mList.subList(mHeaderCount, mHeaderCount + mChildCount));
+        return mModel.getChilds();
     }
 
     public final T getChild(int childPosition) {
-        if (!checkChildPosition(childPosition)) {
-            return null;
-        }
-        return mList.get(mHeaderCount + childPosition);
+        return mModel.getChild(childPosition);
     }
 
-
     public final void updateChild(int childPosition, T child) {
-        int itemPosition = convertChildPosition(childPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        mList.set(itemPosition, child);
-        notifyItemChanged(itemPosition);
+        mModel.updateChild(childPosition, child);
     }
 
-
     public final void notifyChildChanged(int childPosition) {
-        int itemPosition = convertChildPosition(childPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        notifyItemChanged(itemPosition);
+        mModel.notifyChildChanged(childPosition);
     }
 
-    @Override
-    public final int getChildCount() {
-        return mChildCount;
+    public final void notifyChildChanged(int childPosition, Object payload) {
+        mModel.notifyChildChanged(childPosition, payload);
     }
 
-    private boolean checkChildPosition(int childPosition) {
-        if (childPosition < 0) {
-            XLog.w("Invalid child position %d", childPosition);
-            return false;
-        } else if (childPosition >= mChildCount) {
-            XLog.w("invalid child position %d, child size is %d", childPosition, mChildCount);
-            return false;
-        }
-        return true;
+    public final void notifyChildRangeChanged(int childBeginPosition, int changeCount, Object payload) {
+        mModel.notifyChildRangeChanged(childBeginPosition, changeCount, payload);
+    }
+
+    @Override
+    public final int getChildCount() {
+        return mModel.getChildCount();
     }
 
     public final int getChildPosition(int itemPosition) {
-        if (!checkItemPosition(itemPosition)) {
-            XLog.e("invalid adapterPosition %d", itemPosition);
-            return -1;
-        } else if (mChildCount <= 0 || itemPosition >= mHeaderCount + mChildCount) {
-            return -1;
-        }
-        return itemPosition - mHeaderCount;
+        return mModel.getChildPosition(itemPosition);
     }
 
     public final int getChildPosition(T child) {
-        int itemPosition = indexOfChild(child);
-        if (itemPosition == -1) {
-            return -1;
-        }
-        return itemPosition - mHeaderCount;
+        return mModel.getChildPosition(child);
     }
 
     public final int convertChildPosition(int childPosition) {
-        if (!checkChildPosition(childPosition)) {
-            return -1;
-        }
-        return mHeaderCount + childPosition;
+        return mModel.convertChildPosition(childPosition);
     }
 
     public final int indexOfChild(T child) {
-        if (mChildCount <= 0) {
-            return -1;
-        }
-        int itemPosition = -1;
-        int itemBeginPosition = mHeaderCount;
-        int itemEndPosition = itemBeginPosition + mChildCount;
-        for (int i = itemBeginPosition; i < itemEndPosition; i++) {
-            if (mList.get(i).equals(child)) {
-                itemPosition = i;
-                break;
-            }
-        }
-        return itemPosition;
+        return mModel.indexOfChild(child);
     }
 
     public final int addGroup(T group) {
-        return addGroup(mGroupCount, group);
+        return mModel.addGroup(group);
     }
 
     public final int addGroup(int groupPosition, T group) {
-        if (groupPosition < 0) {
-            XLog.e("Invalid group position %d", groupPosition);
-            return -1;
-        } else if (indexOfGroup(group) != -1) {
-            XLog.e("Group is alread exist! You must use a different object to create a new group");
-            return -1;
-        }
-        if (groupPosition > mGroupCount) {
-            XLog.w("Reset group position from %d to %d", groupPosition, mGroupCount);
-            groupPosition = mGroupCount;
-        }
-        int itemPosition = 0;
-        for (int i = 0; i < groupPosition; i++) {
-            itemPosition += mGroupChildCount.get(i) + 1;
-        }
-        itemPosition += mHeaderCount + mChildCount;
-        mList.add(itemPosition, group);
-        mGroupCount += 1;
-        mGroupAndGroupChildCount += 1;
-        if (mGroupChildCount == null) {
-            mGroupChildCount = new ArrayList<>();
-        }
-        mGroupChildCount.add(groupPosition, 0);
-        notifyItemInserted(itemPosition);
-        return groupPosition;
+        return mModel.addGroup(groupPosition, group);
     }
 
     public final void removeGroup(T group) {
-        removeGroup(getGroupPosition(group));
+        mModel.removeGroup(group);
     }
 
     public final void removeGroups(List<T> groups) {
-        int size = groups != null ? groups.size() : 0;
-        for (int i = 0; i < size; i++) {
-            removeGroup(groups.get(i));
-        }
+        mModel.removeGroups(groups);
     }
 
     public final void removeAllGroup() {
-        int groupCount = mGroupCount;
-        for (int i = 0; i < groupCount; i++) {
-            removeGroup(0);
-        }
+        mModel.removeAllGroup();
     }
 
     public final void removeGroup(int groupPosition) {
-        int itemPosition = convertGroupPosition(groupPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        int groupChildCount = mGroupChildCount.get(groupPosition);
-        mList.subList(itemPosition, itemPosition + groupChildCount + 1).clear();
-        mGroupCount--;
-        mGroupAndGroupChildCount -= (1 + mGroupChildCount.get(groupPosition));
-        mGroupChildCount.remove(groupPosition);
-        notifyItemRangeRemoved(itemPosition, groupChildCount + 1);
+        mModel.removeGroup(groupPosition);
     }
 
     public final List<T> getGroups() {
-        if (mGroupCount <= 0) {
-            return null;
-        }
-        List<T> groups = new ArrayList<>(mGroupCount);
-        for (int i = 0; i < mGroupCount; i++) {
-            groups.add(mList.get(convertGroupPosition(i)));
-        }
-        return groups;
+        return mModel.getGroups();
     }
 
-
     public final T getGroup(int groupPosition) {
-        int itemPosition = convertGroupPosition(groupPosition);
-        if (itemPosition == -1) {
-            return null;
-        }
-        return mList.get(itemPosition);
+        return mModel.getGroup(groupPosition);
     }
 
     public final void updateGroup(int groupPosition, T group) {
-        int itemPosition = convertGroupPosition(groupPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        mList.set(itemPosition, group);
-        notifyItemChanged(itemPosition);
+        mModel.updateGroup(groupPosition, group);
     }
 
     public final int getGroupPosition(int itemPosition) {
-        if (!checkItemPosition(itemPosition) || itemPosition < mHeaderCount + mChildCount) {
-            XLog.e("Invalid itemPosition %d", itemPosition);
-            return -1;
-        }
-        int groupPosition = -1;
-        for (int i = 0; i < mGroupCount; i++) {
-            if (itemPosition == convertGroupPosition(i)) {
-                groupPosition = i;
-                break;
-            }
-        }
-        return groupPosition;
+        return mModel.getGroupPosition(itemPosition);
     }
 
     public final int getGroupPosition(T group) {
-        return getGroupPosition(indexOfGroup(group));
+        return mModel.getGroupPosition(group);
     }
 
     public final int convertGroupPosition(int groupPosition) {
-        if (!checkGroupPosition(groupPosition)) {
-            XLog.e("Invalid group position %d", groupPosition);
-            return -1;
-        }
-        int itemPosition = 0;
-        for (int i = 0; i < groupPosition; i++) {
-            itemPosition += mGroupChildCount.get(i) + 1;
-        }
-        return mHeaderCount + mChildCount + itemPosition;
+        return mModel.convertGroupPosition(groupPosition);
     }
 
     public final int indexOfGroup(T group) {
-        if (group == null) {
-            return -1;
-        }
-        int itemPosition = -1;
-        int groupItemPosition;
-        for (int i = 0; i < mGroupCount; i++) {
-            groupItemPosition = convertGroupPosition(i);
-            if (mList.get(groupItemPosition).equals(group)) {
-                itemPosition = groupItemPosition;
-                break;
-            }
-        }
-        return itemPosition;
+        return mModel.indexOfGroup(group);
     }
 
     public final int notifyGroupChanged(int groupPosition) {
-        return notifyGroupChanged(groupPosition, true);
+        return mModel.notifyGroupChanged(groupPosition);
     }
 
     public final int notifyGroupChanged(int groupPosition, boolean notNotifyGroup) {
-        if (!checkGroupPosition(groupPosition)) {
-            XLog.e("Invalid group position %d", groupPosition);
-            return -1;
-        }
-        if (!notNotifyGroup) {
-            notifyItemChanged(convertGroupPosition(groupPosition));
-        }
-        int gcc = getGroupChildCount(groupPosition);
-        for (int i = 0; i < gcc; i++) {
-            notifyGroupChildChanged(groupPosition, i);
-        }
-        return 0;
+        return mModel.notifyGroupChanged(groupPosition, notNotifyGroup);
     }
 
-    @Override
-    public final int getGroupCount() {
-        return mGroupCount;
+    public final int notifyGroupChanged(int groupPosition, boolean notNotifyGroup, Object payload) {
+        return mModel.notifyGroupChanged(groupPosition, notNotifyGroup, payload);
     }
 
-    private boolean checkGroupPosition(int groupPosition) {
-        if (groupPosition < 0) {
-            XLog.w("Invalid group position %d", groupPosition);
-            return false;
-        } else if (groupPosition >= mGroupCount) {
-            XLog.w("Invalid group position %d, group size is %d", groupPosition, mGroupCount);
-            return false;
-        }
-        return true;
+    @Override
+    public final int getGroupCount() {
+        return mModel.getGroupCount();
     }
 
     public final int[] addGroupChild(int groupPosition, T groupChild) {
-        if (!checkGroupPosition(groupPosition)) {
-            return new int[]{-1, -1};
-        }
-        return addGroupChild(groupPosition, mGroupChildCount.get(groupPosition), groupChild, null);
+        return mModel.addGroupChild(groupPosition, groupChild);
     }
 
     public final int[] addGroupChild(int groupPosition, int groupChildPosition, T groupChild) {
-        return addGroupChild(groupPosition, groupChildPosition, groupChild, null);
+        return mModel.addGroupChild(groupPosition, groupChildPosition, groupChild);
     }
 
     public final int[] addGroupChild(int groupPosition, List<T> childList) {
-        if (!checkGroupPosition(groupPosition)) {
-            return new int[]{-1, -1};
-        }
-        return addGroupChild(groupPosition, mGroupChildCount.get(groupPosition), null, childList);
+        return mModel.addGroupChild(groupPosition, childList);
     }
 
     public final int[] addGroupChild(int groupPosition,
                                      int groupChildPosition,
                                      T groupChild,
                                      List<T> groupChildList) {
-        if (!checkGroupPosition(groupPosition)) {
-            return new int[]{-1, -1};
-        } else if (groupChild == null && (groupChildList == null || groupChildList.isEmpty())) {
-            XLog.e("Invalid group child mList");
-            return new int[]{-1, -1};
-        } else if (groupChildPosition < 0) {
-            XLog.e("Invalid child position %d", groupChildPosition);
-            return new int[]{-1, -1};
-        }
-        final int oldGroupChildCount = mGroupChildCount.get(groupPosition);
-        if (groupChildPosition > oldGroupChildCount) {
-            groupChildPosition = oldGroupChildCount;
-        }
-        int itemPosition = 0;
-        for (int i = 0; i < groupPosition; i++) {
-            itemPosition += mGroupChildCount.get(i) + 1;
-        }
-        itemPosition += mHeaderCount + mChildCount + 1 + groupChildPosition;
-        int addSize;
-        if (groupChild != null) {
-            mList.add(itemPosition, groupChild);
-            addSize = 1;
-        } else {
-            mList.addAll(itemPosition, groupChildList);
-            addSize = groupChildList.size();
-        }
-        mGroupChildCount.set(groupPosition, oldGroupChildCount + addSize);
-        mGroupAndGroupChildCount += addSize;
-        notifyItemRangeInserted(itemPosition, addSize);
-        return new int[]{groupPosition, groupChildPosition};
+        return mModel.addGroupChild(groupPosition, groupChildPosition, groupChild, groupChildList);
     }
 
     public final void removeGroupChild(int groupPosition, int groupChildPosition) {
-        removeGroupChild(groupPosition, groupChildPosition, 1);
+        mModel.removeGroupChild(groupPosition, groupChildPosition);
     }
 
     public final void clearGroupChild(int groupPosition) {
-        clearGroupChild(groupPosition, 0);
+        mModel.clearGroupChild(groupPosition);
     }
 
     public final void clearGroupChild(int groupPosition, int groupChildBeginPosition) {
-        if (!checkGroupPosition(groupPosition)) {
-            return;
-        }
-        removeGroupChild(groupPosition,
-                groupChildBeginPosition,
-                mGroupChildCount.get(groupPosition) - groupChildBeginPosition);
-    }
-
-    private final void removeGroupChild(int groupPosition,
-                                        int groupChildBeingPosition,
-                                        int removeCount) {
-        if (!checkGroupChildPosition(groupPosition, groupChildBeingPosition)) {
-            return;
-        }
-        if (removeCount <= 0) {
-            XLog.e("Invalid group remove count %d", removeCount);
-            return;
-        }
-        final int groupChildCount = mGroupChildCount.get(groupPosition);
-        int groupChildEnd = groupChildBeingPosition + removeCount;
-        if (groupChildEnd > groupChildCount) {
-            int oldRemoveCount = removeCount;
-            removeCount = groupChildCount - groupChildBeingPosition;
-            groupChildEnd = groupChildCount;
-            XLog.i("Reset group removeCount from %d to %d", oldRemoveCount, removeCount);
-        }
-        XLog.d("groupPosition=%d, childStarPosition=%d, count=%d, childEnd=%d",
-                groupPosition,
-                groupChildBeingPosition,
-                removeCount,
-                groupChildEnd);
-        int itemPosition = convertGroupPosition(groupPosition);
-        int itemBeginPosition = itemPosition + groupChildBeingPosition + 1;
-        mList.subList(itemBeginPosition, itemBeginPosition + removeCount).clear();
-        mGroupChildCount.set(groupPosition, groupChildCount - removeCount);
-        mGroupAndGroupChildCount -= removeCount;
-        notifyItemRangeRemoved(itemBeginPosition, removeCount);
+        mModel.clearGroupChild(groupPosition, groupChildBeginPosition);
     }
 
     public final List<T> getGroupChilds(int groupPosition) {
-        if (!checkGroupPosition(groupPosition)) {
-            return null;
-        }
-        int groupChildCount = mGroupChildCount.get(groupPosition);
-        if (groupChildCount <= 0) {
-            return null;
-        }
-        int itemPosition = convertGroupPosition(groupPosition);
-        List<T> groupChilds = new ArrayList<>(groupChildCount);
-        for (int i = 0; i < groupChildCount; i++) {
-            groupChilds.add(mList.get(itemPosition + 1 + i));
-        }
-        return groupChilds;
+        return mModel.getGroupChilds(groupPosition);
     }
 
     public final T getGroupChild(int groupPosition, int groupChildPosition) {
-        if (!checkGroupChildPosition(groupPosition, groupChildPosition)) {
-            return null;
-        }
-        int itemPosition = convertGroupChildPosition(groupPosition, groupChildPosition);
-        if (itemPosition == -1) {
-            return null;
-        }
-        return mList.get(itemPosition);
+        return mModel.getGroupChild(groupPosition, groupChildPosition);
     }
 
-
     public final void updateGroupChild(int groupPosition, int groupChildPosition, T groupChild) {
-        if (!checkGroupChildPosition(groupPosition, groupChildPosition)) {
-            return;
-        }
-        int itemPosition = convertGroupChildPosition(groupPosition, groupChildPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        mList.set(itemPosition, groupChild);
-        notifyItemChanged(itemPosition);
+        mModel.updateGroupChild(groupPosition, groupChildPosition, groupChild);
     }
 
     public final void updateGroupChild(int groupPosition, int groupChildPosition) {
-        int itemPosition = convertGroupChildPosition(groupPosition, groupChildPosition);
-        if (itemPosition != -1) {
-            notifyItemChanged(itemPosition);
-        }
+        mModel.updateGroupChild(groupPosition, groupChildPosition);
     }
 
     @Override
     public final int getGroupChildCount(int groupPosition) {
-        if (!checkGroupPosition(groupPosition)) {
-            return 0;
-        }
-        return mGroupChildCount.get(groupPosition);
+        return mModel.getGroupChildCount(groupPosition);
     }
 
     public final int getGroupAndGroupChildCount() {
-        return mGroupAndGroupChildCount;
+        return mModel.getGroupAndGroupChildCount();
+    }
+
+    public final boolean isGroupExpanded(int groupPosition) {
+        return mModel.isGroupExpanded(groupPosition);
+    }
+
+    public final void expandGroup(int groupPosition) {
+        mModel.expandGroup(groupPosition);
+    }
+
+    public final void collapseGroup(int groupPosition) {
+        mModel.collapseGroup(groupPosition);
+    }
+
+    public final boolean toggleGroup(int groupPosition) {
+        return mModel.toggleGroup(groupPosition);
+    }
+
+    public final void expandAll() {
+        mModel.expandAll();
+    }
+
+    public final void collapseAll() {
+        mModel.collapseAll();
+    }
+
+    public final void setGroupComparator(Comparator<T> comparator) {
+        mModel.setGroupComparator(comparator);
+    }
+
+    public final void setGroupChildComparator(Comparator<T> comparator) {
+        mModel.setGroupChildComparator(comparator);
+    }
+
+    public final int addSortedGroup(T group) {
+        return mModel.addSortedGroup(group);
+    }
+
+    public final void addSortedGroups(List<T> groups) {
+        mModel.addSortedGroups(groups);
+    }
+
+    public final int updateSortedGroup(int groupPosition, T group) {
+        return mModel.updateSortedGroup(groupPosition, group);
+    }
+
+    public final int[] addSortedGroupChild(int groupPosition, T groupChild) {
+        return mModel.addSortedGroupChild(groupPosition, groupChild);
+    }
+
+    public final void addSortedGroupChilds(int groupPosition, List<T> groupChilds) {
+        mModel.addSortedGroupChilds(groupPosition, groupChilds);
+    }
+
+    public final int updateSortedGroupChild(int groupPosition, int groupChildPosition, T groupChild) {
+        return mModel.updateSortedGroupChild(groupPosition, groupChildPosition, groupChild);
+    }
+
+    public final void moveGroup(int fromGroupPosition, int toGroupPosition) {
+        mModel.moveGroup(fromGroupPosition, toGroupPosition);
+    }
+
+    public final void moveGroupChild(int fromGroupPosition,
+                                     int fromGroupChildPosition,
+                                     int toGroupPosition,
+                                     int toGroupChildPosition) {
+        mModel.moveGroupChild(fromGroupPosition, fromGroupChildPosition, toGroupPosition, toGroupChildPosition);
+    }
+
+    public final void setGroupChildProvider(GroupChildProvider<T> provider) {
+        mModel.setGroupChildProvider(provider);
+    }
+
+    /**
+     * groupChild加载所在的线程池，默认AsyncTask.THREAD_POOL_EXECUTOR
+     */
+    public final void setGroupChildLoadExecutor(Executor executor) {
+        mGroupChildLoader.setExecutor(executor);
+    }
+
+    public final int addLazyGroup(T group) {
+        return mModel.addLazyGroup(group);
+    }
+
+    public final int addLazyGroup(int groupPosition, T group, boolean expanded) {
+        return mModel.addLazyGroup(groupPosition, group, expanded);
+    }
+
+    public final int getDeclaredGroupChildCount(int groupPosition) {
+        return mModel.getDeclaredGroupChildCount(groupPosition);
+    }
+
+    public final boolean isGroupChildLoaded(int groupPosition) {
+        return mModel.isGroupChildLoaded(groupPosition);
+    }
+
+    /**
+     * 子类重写时需要调用super，延迟加载的group滑动到可见时在这里开始加载
+     */
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        mModel.onItemAttached(holder.getAdapterPosition());
+    }
+
+    public final void setGroupChildPageSource(GroupChildPageSource<T> pageSource) {
+        mModel.setGroupChildPageSource(pageSource);
+    }
+
+    public final void setGroupChildPageConfig(int pageSize, int maxCachedPages) {
+        mModel.setGroupChildPageConfig(pageSize, maxCachedPages);
+    }
+
+    /**
+     * 没有加载的groupChild的viewType是{@link ExpandableModel#VIEW_TYPE_PAGED_PLACEHOLDER}，
+     * 见{@link ExpandableModel#addPagedGroup(int, Object, int, boolean)}
+     */
+    public final int addPagedGroup(int groupPosition, T group, int groupChildCount, boolean expanded) {
+        return mModel.addPagedGroup(groupPosition, group, groupChildCount, expanded);
+    }
+
+    public final void invalidatePagedGroup(int groupPosition, int groupChildCount) {
+        mModel.invalidatePagedGroup(groupPosition, groupChildCount);
     }
 
     public final void notifyGroupChildChanged(int groupPosition, int childPosition) {
-        int itemPosition = convertGroupChildPosition(groupPosition, childPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        notifyItemChanged(itemPosition);
+        mModel.notifyGroupChildChanged(groupPosition, childPosition);
     }
 
-    private boolean checkGroupChildPosition(int groupPosition, int groupChildPosition) {
-        int groupChildCount;
-        if (groupChildPosition < 0) {
-            XLog.w("Invalid group child position %d, %d", groupPosition, groupChildPosition);
-            return false;
-        } else if (!checkGroupPosition(groupPosition)) {
-            return false;
-        } else if (groupChildPosition >= (groupChildCount = mGroupChildCount.get(groupPosition))) {
-            XLog.w("Invalid group child position %d, %d, group %d child size is %d",
-                    groupPosition,
-                    groupChildPosition,
-                    groupPosition,
-                    groupChildCount);
-            return false;
-        }
-        return true;
+    public final void notifyGroupChildChanged(int groupPosition, int childPosition, Object payload) {
+        mModel.notifyGroupChildChanged(groupPosition, childPosition, payload);
+    }
+
+    public final void notifyGroupChildRangeChanged(int groupPosition,
+                                                   int groupChildBeginPosition,
+                                                   int changeCount,
+                                                   Object payload) {
+        mModel.notifyGroupChildRangeChanged(groupPosition, groupChildBeginPosition, changeCount, payload);
     }
 
     public final int[] getGroupChildPosition(int itemPosition) {
-        int[] groupChildPosition = new int[]{-1, -1};
-        if (!checkItemPosition(itemPosition)) {
-            XLog.e("Invalid item position %d", itemPosition);
-            return groupChildPosition;
-        }
-        if (mGroupCount > 0) {
-            int groupItemPosition = mHeaderCount + mChildCount;
-            if (itemPosition <= groupItemPosition) {
-                return groupChildPosition;
-            }
-            int groupChildCount;
-            for (int i = 0; i < mGroupCount; i++) {
-                groupChildCount = mGroupChildCount.get(i);
-                if (itemPosition > groupItemPosition && itemPosition <= groupItemPosition + groupChildCount) {
-                    for (int j = 0; j < groupChildCount; j++) {
-                        groupItemPosition += 1;
-                        if (groupItemPosition == itemPosition) {
-                            groupChildPosition[0] = i;
-                            groupChildPosition[1] = j;
-                            break;
-                        }
-                    }
-                } else {
-                    groupItemPosition += groupChildCount;
-                }
-                groupItemPosition++;
-            }
-        }
-        return groupChildPosition;
+        return mModel.getGroupChildPosition(itemPosition);
     }
 
     public final int[] getGroupChildPosition(T groupChild) {
-        return getGroupChildPosition(indexOfGroupChild(groupChild));
+        return mModel.getGroupChildPosition(groupChild);
     }
 
     public final int indexOfGroupChild(T groupChild) {
-        if (groupChild == null || mGroupCount == 0) {
-            return -1;
-        }
-        int itemPosition = -1;
-        int itemCount = getItemCount();
-        int itemBeginPosition = mHeaderCount + mChildCount;
-        int itemEndPosition = itemCount - mFooterCount;
-        for (int i = itemBeginPosition; i < itemEndPosition; i++) {
-            if (mList.get(i).equals(groupChild)) {
-                itemPosition = i;
-                break;
-            }
-        }
-        return itemPosition;
+        return mModel.indexOfGroupChild(groupChild);
     }
 
     public final int convertGroupChildPosition(int groupPosition, int childPosition) {
-        if (!checkGroupChildPosition(groupPosition, childPosition)) {
-            return -1;
-        }
-        return convertGroupPosition(groupPosition) + 1 + childPosition;
+        return mModel.convertGroupChildPosition(groupPosition, childPosition);
     }
 
     public final void addFooter(T footer) {
-        addFooter(mFooterCount, footer, null);
+        mModel.addFooter(footer);
     }
 
     public final void addFooter(List<T> footerList) {
-        addFooter(mFooterCount, null, footerList);
+        mModel.addFooter(footerList);
     }
 
     public final void addFooter(int footerPosition, T footer) {
-        addFooter(footerPosition, footer, null);
+        mModel.addFooter(footerPosition, footer);
     }
 
     public final int addFooter(int footerPosition, T footer, List<T> footerList) {
-        if (footerPosition < 0) {
-            XLog.e("Invalid footer position %d", footerPosition);
-            return -1;
-        } else if (footer == null && (null == footerList || footerList.isEmpty())) {
-            XLog.e("Wrong footer param");
-            return -1;
-        }
-        int oldFooterCount = mFooterCount;
-        if (footerPosition > oldFooterCount) {
-            footerPosition = oldFooterCount;
-        }
-        int itemPosition = mHeaderCount + mChildCount + mGroupAndGroupChildCount + footerPosition;
-        int addSize;
-        if (footer != null) {
-            mList.add(itemPosition, footer);
-            addSize = 1;
-        } else {
-            mList.addAll(itemPosition, footerList);
-            addSize = footerList.size();
-        }
-        XLog.v("Notify item from %d, count is %d", itemPosition, addSize);
-        mFooterCount += addSize;
-        notifyItemRangeInserted(itemPosition, addSize);
-        return footerPosition;
+        return mModel.addFooter(footerPosition, footer, footerList);
     }
 
     public final void removeFooter(T footer) {
-        int itemPosition = indexOfFooter(footer);
-        if (itemPosition == -1) {
-            return;
-        }
-        mList.remove(itemPosition);
-        notifyItemRemoved(itemPosition);
-        mFooterCount--;
+        mModel.removeFooter(footer);
     }
 
     public final void removeFooters(List<T> footers) {
-        int size = footers != null ? footers.size() : 0;
-        for (int i = 0; i < size; i++) {
-            removeFooter(footers.get(i));
-        }
+        mModel.removeFooters(footers);
     }
 
     public final void removeFooter(int footerPosition) {
-        removeFooter(footerPosition, 1);
+        mModel.removeFooter(footerPosition);
     }
 
     public final void clearFooter() {
-        clearFooter(0);
+        mModel.clearFooter();
     }
 
     public final void clearFooter(int footerBeginPosition) {
-        removeFooter(footerBeginPosition, mFooterCount - footerBeginPosition);
+        mModel.clearFooter(footerBeginPosition);
     }
 
     public final void removeFooter(int footerBeginPosition, int removeCount) {
-        if (!checkFooterPosition(footerBeginPosition)) {
-            return;
-        }
-        int footerItemBeginPosition = convertFooterPosition(footerBeginPosition);
-        int footerItemEndPosition = footerItemBeginPosition + removeCount;
-        if (footerItemEndPosition > mList.size()) {
-            footerItemEndPosition = mList.size();
-            int oldRemoveCount = removeCount;
-            removeCount = footerItemEndPosition - footerItemBeginPosition;
-            XLog.i("Reset removeCount from %d to %d", oldRemoveCount, removeCount);
-        }
-        mList.subList(footerItemBeginPosition, footerItemEndPosition).clear();
-        mFooterCount -= removeCount;
-        notifyItemRangeRemoved(footerItemBeginPosition, removeCount);
+        mModel.removeFooter(footerBeginPosition, removeCount);
     }
 
     public final List<T> getFooters() {
-        int footerItemBeginPosition = convertFooterPosition(0);
-        if (footerItemBeginPosition == -1) {
-            return null;
-        }
-        return new ArrayList<>(mList.subList(footerItemBeginPosition,
-                footerItemBeginPosition + mFooterCount));
+        return mModel.getFooters();
     }
 
-
     public final T getFooter(int footerPosition) {
-        int itemPosition = convertFooterPosition(footerPosition);
-        if (itemPosition == -1) {
-            return null;
-        }
-        return mList.get(itemPosition);
+        return mModel.getFooter(footerPosition);
     }
 
     public final void updateFooter(int footerPosition, T footer) {
-        int itemPosition = convertFooterPosition(footerPosition);
-        if (itemPosition == -1) {
-            return;
-        }
-        mList.set(itemPosition, footer);
-        notifyItemChanged(itemPosition);
+        mModel.updateFooter(footerPosition, footer);
     }
 
-    @Override
-    public final int getFooterCount() {
-        return mFooterCount;
+    public final void notifyFooterChanged(int footerPosition) {
+        mModel.notifyFooterChanged(footerPosition);
     }
 
-    private boolean checkFooterPosition(int footerPosition) {
-        if (footerPosition < 0) {
-            XLog.w("Invalid footer position %d", footerPosition);
-            return false;
-        } else if (footerPosition >= mFooterCount) {
-            XLog.w("Invalid footer position %d, footer size is %d", footerPosition, mFooterCount);
-            return false;
-        }
-        return true;
+    public final void notifyFooterChanged(int footerPosition, Object payload) {
+        mModel.notifyFooterChanged(footerPosition, payload);
+    }
+
+    public final void notifyFooterRangeChanged(int footerBeginPosition, int changeCount, Object payload) {
+        mModel.notifyFooterRangeChanged(footerBeginPosition, changeCount, payload);
+    }
+
+    @Override
+    public final int getFooterCount() {
+        return mModel.getFooterCount();
     }
 
     public final int getFooterPosition(int itemPosition) {
-        if (!checkItemPosition(itemPosition)) {
-            XLog.e("Invalid item position %d", itemPosition);
-            return -1;
-        } else if (mFooterCount <= 0) {
-            return -1;
-        } else if (itemPosition < mList.size() - mFooterCount) {
-            return -1;
-        }
-        return mFooterCount - (mList.size() - itemPosition);
+        return mModel.getFooterPosition(itemPosition);
     }
 
     public final int getFooterPosition(T footer) {
-        return getFooterPosition(indexOfFooter(footer));
+        return mModel.getFooterPosition(footer);
     }
 
-    private int indexOfFooter(T footer) {
-        if (footer == null) {
-            return -1;
+    public final int convertFooterPosition(int footerPosition) {
+        return mModel.convertFooterPosition(footerPosition);
+    }
+
+    public final ExpandableSnapshot<T> snapshot() {
+        return mModel.snapshot();
+    }
+
+    /**
+     * 见{@link #postMutation(Object, AdapterMutation)}，不合并
+     */
+    public final void postMutation(AdapterMutation<T> mutation) {
+        postMutation(null, mutation);
+    }
+
+    /**
+     * 可以在任意线程调用，修改会在主线程的下一次消息循环中与其它提交的修改一起执行（在同一个batch里面，刷新通知会合并）。
+     * 执行之前又提交了相同key（equals）的修改的话，只执行最后提交的那一个
+     *
+     * @param key 为null时不合并
+     */
+    public final void postMutation(Object key, AdapterMutation<T> mutation) {
+        if (mutation == null) {
+            XLog.e("Invalid mutation");
+            return;
         }
-        int itemPosition = -1;
-        int footerItemBeginPosition = convertFooterPosition(0);
-        int itemCount = getItemCount();
-        for (int i = footerItemBeginPosition; i < itemCount; i++) {
-            if (mList.get(i).equals(footer)) {
-                itemPosition = i;
-                break;
+        mMutationQueue.post(key, mutation);
+    }
+
+    /**
+     * 可以在任意线程调用，在主线程把oldItem替换为newItem，oldItem已经不在adapter里面时忽略。
+     * 同一个oldItem多次替换只执行最后一次
+     */
+    public final void postUpdateItem(final T oldItem, final T newItem) {
+        postMutation(oldItem, new AdapterMutation<T>() {
+            @Override
+            public void apply(ExpandableAdapter<T> adapter) {
+                int itemPosition = adapter.getItemPosition(oldItem);
+                if (itemPosition != -1) {
+                    adapter.updateItem(itemPosition, newItem);
+                }
             }
-        }
-        return itemPosition;
+        });
     }
 
-    public final int convertFooterPosition(int footerPosition) {
-        if (!checkFooterPosition(footerPosition)) {
-            return -1;
-        }
-        return mHeaderCount + mChildCount + mGroupAndGroupChildCount + footerPosition;
+    /**
+     * 开始批量修改，之后的增删改不会立即通知RecyclerView，直到{@link #endBatch()}时
+     * 把相邻或者重叠的通知合并之后一次性发出。可以嵌套，最外层的endBatch才会发出通知
+     */
+    public final void beginBatch() {
+        mModel.beginBatch();
     }
 
-    @Override
-    public final int getItemCount() {
-        return mList.size();
+    public final void endBatch() {
+        mModel.endBatch();
     }
 
-    private boolean checkItemPosition(int itemPosition) {
-        int itemCount = getItemCount();
-        if (itemPosition < 0 || itemPosition >= itemCount) {
-            XLog.e("Invalid itemPosition %d, item count is %d", itemPosition, itemCount);
-            return false;
-        }
-        return true;
+    public final boolean isInBatch() {
+        return mModel.isInBatch();
+    }
+
+    @Override
+    public final int getItemCount() {
+        return mModel.getItemCount();
     }
 
     public final int getHeaderPositionByViewType(int viewType) {
-        int p = -1;
-        T header;
-        for (int i = 0; i < mHeaderCount; i++) {
-            header = getHeader(i);
-            if (viewType == getItemViewType(header) || viewType == getItemViewType(getItemPosition(
-                    header))) {
-                p = i;
-                break;
-            }
-        }
-        return p;
+        return mModel.getHeaderPositionByViewType(viewType);
     }
 
     public final int getLastHeaderPositionByViewType(int viewType) {
-        int p = -1;
-        T header;
-        for (int i = mHeaderCount - 1; i >= 0; i--) {
-            header = getHeader(i);
-            if (viewType == getItemViewType(header) || viewType == getItemViewType(getItemPosition(
-                    header))) {
-                p = i;
-                break;
-            }
-        }
-        return p;
+        return mModel.getLastHeaderPositionByViewType(viewType);
     }
 
     public final void removeHeaderByViewType(int viewType) {
-        int p = getHeaderPositionByViewType(viewType);
-        if (p != -1) {
-            removeHeader(p);
-        } else {
-            XLog.w("No header's viewType is %d", viewType);
-        }
+        mModel.removeHeaderByViewType(viewType);
     }
 
     public final int getChildPositionByViewType(int viewType) {
-        int p = -1;
-        if (mChildCount <= 0) {
-            return p;
-        }
-        int childItemPosition = mHeaderCount;
-        for (int i = 0; i < mChildCount; i++) {
-            if (viewType == getItemViewType(childItemPosition)) {
-                p = i;
-                break;
-            }
-            childItemPosition++;
-        }
-        return p;
+        return mModel.getChildPositionByViewType(viewType);
     }
 
     public final int getLastChildPositionByViewType(int viewType) {
-        int p = -1;
-        if (mChildCount <= 0) {
-            return p;
-        }
-        int childItemPosition = mHeaderCount + mChildCount - 1;
-        for (int i = mChildCount - 1; i >= 0; i--) {
-            if (viewType == getItemViewType(childItemPosition)) {
-                p = i;
-                break;
-            }
-            childItemPosition--;
-        }
-        return p;
+        return mModel.getLastChildPositionByViewType(viewType);
     }
 
     public final void removeChildByViewType(int viewType) {
-        int p = getChildPositionByViewType(viewType);
-        if (p != -1) {
-            removeChild(p);
-        } else {
-            XLog.w("No child's viewType is %d", viewType);
-        }
+        mModel.removeChildByViewType(viewType);
     }
 
     public final int getGroupPositionByViewType(int viewType) {
-        int p = -1;
-        if (mGroupCount <= 0) {
-            return p;
-        }
-        int groupItemPosition = mHeaderCount + mChildCount;
-        for (int i = 0; i < mGroupCount; i++) {
-            if (viewType == getItemViewType(groupItemPosition)) {
-                p = i;
-                break;
-            }
-            groupItemPosition += mGroupChildCount.get(i) + 1;
-        }
-        return p;
+        return mModel.getGroupPositionByViewType(viewType);
     }
 
     public final int getLastGroupPositionByViewType(int viewType) {
-        int p = -1;
-        if (mGroupCount <= 0) {
-            return p;
-        }
-        int groupItemPosition = convertGroupPosition(mGroupCount - 1);
-        for (int i = mGroupCount - 1; i >= 0; i--) {
-            if (viewType == getItemViewType(groupItemPosition)) {
-                p = i;
-                break;
-            }
-            if (i - 1 >= 0) {
-                groupItemPosition -= mGroupChildCount.get(i - 1) + 1;
-            }
-        }
-        return p;
+        return mModel.getLastGroupPositionByViewType(viewType);
     }
 
     public final void removeGroupByViewType(int viewType) {
-        int gpos = getGroupPositionByViewType(viewType);
-        if (-1 != gpos) {
-            removeGroup(gpos);
-        } else {
-            XLog.w("no group's viewType is %d", viewType);
-        }
+        mModel.removeGroupByViewType(viewType);
     }
 
     public final int getFooterPositionByViewType(int viewType) {
-        int p = -1;
-        if (mFooterCount <= 0) {
-            return p;
-        }
-        int footerItemPosition = mList.size() - mFooterCount;
-        for (int i = 0; i < mFooterCount; i++) {
-            if (viewType == getItemViewType(footerItemPosition)) {
-                p = i;
-                break;
-            }
-            footerItemPosition++;
-        }
-        return p;
+        return mModel.getFooterPositionByViewType(viewType);
     }
 
     public final int getLastFooterPositionByViewType(int viewType) {
-        int p = -1;
-        int footerItemPosition = mList.size() - 1;
-        for (int i = mFooterCount - 1; i >= 0; i--) {
-            if (viewType == getItemViewType(footerItemPosition)) {
-                p = i;
-                break;
-            }
-            footerItemPosition--;
-        }
-        return p;
+        return mModel.getLastFooterPositionByViewType(viewType);
     }
 
     public final void removeFooterByViewType(int viewType) {
-        int p = getFooterPositionByViewType(viewType);
-        if (p != -1) {
-            removeFooter(p);
-        } else {
-            XLog.w("no footer's viewType is %d", viewType);
-        }
+        mModel.removeFooterByViewType(viewType);
     }
 
     public int getHeaderPosition(int currViewType, List<Integer> headerListViewTypes) {
-        return getPosition(0, headerListViewTypes, currViewType);
+        return mModel.getHeaderPosition(currViewType, headerListViewTypes);
     }
 
     public int getChildPosition(int currViewType, List<Integer> childListViewTypes) {
-        return getPosition(1, childListViewTypes, currViewType);
+        return mModel.getChildPosition(currViewType, childListViewTypes);
     }
 
     public int getGroupPosition(int currViewType, List<Integer> groupListViewTypes) {
-        return getPosition(2, groupListViewTypes, currViewType);
+        return mModel.getGroupPosition(currViewType, groupListViewTypes);
     }
 
     public int getFooterPosition(int currViewType, List<Integer> footerListViewTypes) {
-        return getPosition(3, footerListViewTypes, currViewType);
+        return mModel.getFooterPosition(currViewType, footerListViewTypes);
     }
 
     /**
-     * @param type         0,header;1,child;2,group,3,footer
-     * @param viewTypes    constrainted viewtype list
-     * @param currViewType the viewType which you need to calculate the right position
+     * model的通知转发给RecyclerView，viewType通过{@link #getItemViewType(Object)}计算
      */
-    private int getPosition(int type, List<Integer> viewTypes, int currViewType) {
-        if (viewTypes == null || viewTypes.isEmpty()) {
-            XLog.w("Please call method setXXXViewTypePositionConstraints");
-            return -1;
+    private final class ModelBridge implements ExpandableModelListener, ItemViewTypeProvider<T> {
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            if (payload == null) {
+                notifyItemRangeChanged(positionStart, itemCount);
+            } else {
+                notifyItemRangeChanged(positionStart, itemCount, payload);
+            }
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
         }
-        int currViewTypePosition = viewTypes.indexOf(currViewType);
-        if (currViewTypePosition == -1) {
-            XLog.w("ViewType %d not find in XXX constraint viewType list");
-            return -1;
+
+        @Override
+        public void onDataSetChanged() {
+            notifyDataSetChanged();
         }
-        if (currViewTypePosition == 0) {
-            return 0;
+
+        @Override
+        public int getItemViewType(T item, int itemPosition) {
+            if (!mViewTypeOverridden) {
+                return resolveItemViewType(item, itemPosition);
+            }
+            mResolvingViewType = true;
+            try {
+                return ExpandableAdapter.this.getItemViewType(itemPosition);
+            } finally {
+                mResolvingViewType = false;
+            }
         }
-        int tmp;
-        int targetPos = -1;
-        for (int i = currViewTypePosition - 1; i >= 0; i--) {
-            switch (type) {
-                case 0:
-                    tmp = getLastHeaderPositionByViewType(viewTypes.get(i));
+    }
+
+    private static final class XLogPrinter implements ModelLog.Printer {
+
+        @Override
+        public void print(int priority, String message) {
+            switch (priority) {
+                case ModelLog.VERBOSE:
+                    XLog.v("%s", message);
                     break;
-                case 1:
-                    tmp = getLastChildPositionByViewType(viewTypes.get(i));
+                case ModelLog.DEBUG:
+                    XLog.d("%s", message);
                     break;
-                case 2:
-                    tmp = getLastGroupPositionByViewType(viewTypes.get(i));
+                case ModelLog.INFO:
+                    XLog.i("%s", message);
                     break;
-                case 3:
-                    tmp = getLastFooterPositionByViewType(viewTypes.get(i));
+                case ModelLog.WARN:
+                    XLog.w("%s", message);
                     break;
                 default:
-                    return -1;
-            }
-            if (tmp >= 0) {
-                targetPos = tmp + 1;
-                break;
+                    XLog.e("%s", message);
+                    break;
             }
         }
-        if (targetPos == -1) {
-            targetPos = 0;
-        }
-        return targetPos;
     }
 }
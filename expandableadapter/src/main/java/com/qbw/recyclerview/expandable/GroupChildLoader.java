@@ -0,0 +1,162 @@
+package com.qbw.recyclerview.expandable;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.qbw.log.XLog;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 在后台线程通过GroupChildProvider加载groupChild，加载完成之后回到主线程交给model插入
+ */
+final class GroupChildLoader<T> implements GroupChildRequester<T> {
+
+    private final WeakReference<ExpandableModel<T>> mWRModel;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+
+    GroupChildLoader(ExpandableModel<T> model) {
+        mWRModel = new WeakReference<>(model);
+    }
+
+    void setExecutor(Executor executor) {
+        mExecutor = executor != null ? executor : AsyncTask.THREAD_POOL_EXECUTOR;
+    }
+
+    /**
+     * 主线程调用
+     */
+    @Override
+    public void load(GroupNode<T> node, GroupChildProvider<T> provider) {
+        mExecutor.execute(new LoadRunn<>(this, node, node.mGroup, provider));
+    }
+
+    /**
+     * 主线程调用
+     */
+    @Override
+    public void loadPage(GroupNode<T> node, int page, GroupChildPageSource<T> pageSource) {
+        GroupChildPages<T> pages = node.mPages;
+        int startPosition = page * pages.mPageSize;
+        int loadCount = Math.min(pages.mPageSize, pages.mCount - startPosition);
+        mExecutor.execute(new LoadPageRunn<>(this,
+                node,
+                node.mGroup,
+                pages.mGeneration,
+                page,
+                startPosition,
+                loadCount,
+                pageSource));
+    }
+
+    private static class LoadRunn<T> implements Runnable {
+
+        private final GroupChildLoader<T> mLoader;
+        private final GroupNode<T> mNode;
+        private final T mGroup;
+        private final GroupChildProvider<T> mProvider;
+
+        LoadRunn(GroupChildLoader<T> loader,
+                 GroupNode<T> node,
+                 T group,
+                 GroupChildProvider<T> provider) {
+            mLoader = loader;
+            mNode = node;
+            mGroup = group;
+            mProvider = provider;
+        }
+
+        @Override
+        public void run() {
+            List<T> groupChilds;
+            try {
+                groupChilds = mProvider.loadGroupChilds(mGroup);
+            } catch (RuntimeException e) {
+                XLog.e("Load group childs failed, %s", e.toString());
+                groupChilds = null;
+            }
+            mLoader.mHandler.post(new DeliverRunn<>(mLoader.mWRModel, mNode, groupChilds));
+        }
+    }
+
+    private static class DeliverRunn<T> implements Runnable {
+
+        private final WeakReference<ExpandableModel<T>> mWRModel;
+        private final GroupNode<T> mNode;
+        private final List<T> mGroupChilds;
+
+        DeliverRunn(WeakReference<ExpandableModel<T>> wrModel,
+                    GroupNode<T> node,
+                    List<T> groupChilds) {
+            mWRModel = wrModel;
+            mNode = node;
+            mGroupChilds = groupChilds;
+        }
+
+        @Override
+        public void run() {
+            ExpandableModel<T> model = mWRModel.get();
+            if (model == null) {
+                return;
+            }
+            model.onGroupChildsLoaded(mNode, mGroupChilds);
+        }
+    }
+
+    private static class LoadPageRunn<T> implements Runnable {
+
+        private final GroupChildLoader<T> mLoader;
+        private final GroupNode<T> mNode;
+        private final T mGroup;
+        private final int mGeneration;
+        private final int mPage;
+        private final int mStartPosition;
+        private final int mLoadCount;
+        private final GroupChildPageSource<T> mPageSource;
+
+        LoadPageRunn(GroupChildLoader<T> loader,
+                     GroupNode<T> node,
+                     T group,
+                     int generation,
+                     int page,
+                     int startPosition,
+                     int loadCount,
+                     GroupChildPageSource<T> pageSource) {
+            mLoader = loader;
+            mNode = node;
+            mGroup = group;
+            mGeneration = generation;
+            mPage = page;
+            mStartPosition = startPosition;
+            mLoadCount = loadCount;
+            mPageSource = pageSource;
+        }
+
+        @Override
+        public void run() {
+            List<T> groupChilds;
+            try {
+                groupChilds = mPageSource.loadGroupChilds(mGroup, mStartPosition, mLoadCount);
+            } catch (RuntimeException e) {
+                XLog.e("Load group child page failed, %s", e.toString());
+                groupChilds = null;
+            }
+            final List<T> result = groupChilds;
+            final WeakReference<ExpandableModel<T>> wrModel = mLoader.mWRModel;
+            mLoader.mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    ExpandableModel<T> model = wrModel.get();
+                    if (model != null) {
+                        model.onGroupChildPageLoaded(mNode, mGeneration, mPage, result);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * 配合{@link ExpandableAdapter#filter(CharSequence)}使用。
+ * group匹配时显示它所有的groupChild，否则只显示匹配的groupChild，没有匹配的groupChild时group也不显示
+ */
+public interface ItemFilter<T> {
+
+    /**
+     * 后台线程调用，header、child、group、groupChild、footer都会调用
+     */
+    boolean accept(T item, CharSequence constraint);
+
+    /**
+     * 主线程调用，newConstraint能匹配的item一定也能被oldConstraint匹配时返回true
+     * （例如按contains匹配，newConstraint包含oldConstraint），这时只在上一次的结果里面过滤
+     */
+    boolean isNarrower(CharSequence newConstraint, CharSequence oldConstraint);
+}
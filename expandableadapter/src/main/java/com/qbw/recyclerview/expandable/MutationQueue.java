@@ -0,0 +1,109 @@
+package com.qbw.recyclerview.expandable;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.qbw.log.XLog;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 任意线程提交AdapterMutation，主线程在下一次消息循环时一次性执行队列中所有的修改，
+ * 相同key的修改只执行最后提交的那一个
+ */
+final class MutationQueue<T> {
+
+    private static final class Entry<T> {
+        final Object mKey;
+        final AdapterMutation<T> mMutation;
+        /**
+         * 被相同key的修改替换了
+         */
+        volatile boolean mReplaced;
+
+        Entry(Object key, AdapterMutation<T> mutation) {
+            mKey = key;
+            mMutation = mutation;
+        }
+    }
+
+    private final WeakReference<ExpandableAdapter<T>> mWRAdapter;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentLinkedQueue<Entry<T>> mQueue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Object, Entry<T>> mKeyedEntries = new ConcurrentHashMap<>();
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final DrainRunn<T> mDrainRunn;
+
+    MutationQueue(ExpandableAdapter<T> adapter) {
+        mWRAdapter = new WeakReference<>(adapter);
+        mDrainRunn = new DrainRunn<>(this);
+    }
+
+    /**
+     * 任意线程调用
+     *
+     * @param key 为null时不合并
+     */
+    void post(Object key, AdapterMutation<T> mutation) {
+        Entry<T> entry = new Entry<>(key, mutation);
+        if (key != null) {
+            Entry<T> old = mKeyedEntries.put(key, entry);
+            if (old != null) {
+                old.mReplaced = true;
+            }
+        }
+        mQueue.offer(entry);
+        if (mScheduled.compareAndSet(false, true)) {
+            mHandler.post(mDrainRunn);
+        }
+    }
+
+    /**
+     * 主线程调用
+     */
+    private void drain() {
+        mScheduled.set(false);
+        ExpandableAdapter<T> adapter = mWRAdapter.get();
+        if (adapter == null) {
+            mQueue.clear();
+            mKeyedEntries.clear();
+            return;
+        }
+        adapter.beginBatch();
+        try {
+            Entry<T> entry;
+            while ((entry = mQueue.poll()) != null) {
+                if (entry.mKey != null) {
+                    mKeyedEntries.remove(entry.mKey, entry);
+                }
+                if (entry.mReplaced) {
+                    continue;
+                }
+                try {
+                    entry.mMutation.apply(adapter);
+                } catch (RuntimeException e) {
+                    XLog.e("Apply mutation failed, %s", e.toString());
+                }
+            }
+        } finally {
+            adapter.endBatch();
+        }
+    }
+
+    private static class DrainRunn<T> implements Runnable {
+
+        private final MutationQueue<T> mMutationQueue;
+
+        DrainRunn(MutationQueue<T> mutationQueue) {
+            mMutationQueue = mutationQueue;
+        }
+
+        @Override
+        public void run() {
+            mMutationQueue.drain();
+        }
+    }
+}
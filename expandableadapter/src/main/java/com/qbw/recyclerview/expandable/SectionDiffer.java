@@ -0,0 +1,346 @@
+package com.qbw.recyclerview.expandable;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.qbw.log.XLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在后台线程计算adapter当前数据与新数据（SectionBuilder）的差异，
+ * 按header、child、group（groupChild）、footer分别计算，结果回到主线程交给adapter刷新
+ */
+final class SectionDiffer<T> {
+
+    static final int INSERT = 0;
+    static final int REMOVE = 1;
+    static final int CHANGE = 2;
+
+    /**
+     * groupChild总数超过这个值时，各个group的groupChild在sGroupDiffService中并行计算差异
+     */
+    private static final int PARALLEL_GROUP_CHILD_COUNT = 1024;
+    private static ExecutorService sGroupDiffService;
+
+    private final WeakReference<ExpandableAdapter<T>> mWRAdapter;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+
+    /**
+     * 每次提交或者取消都加1，后台线程发现不相等就放弃计算
+     */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    SectionDiffer(ExpandableAdapter<T> adapter) {
+        mWRAdapter = new WeakReference<>(adapter);
+    }
+
+    void setExecutor(Executor executor) {
+        mExecutor = executor != null ? executor : AsyncTask.THREAD_POOL_EXECUTOR;
+    }
+
+    int getGeneration() {
+        return mGeneration.get();
+    }
+
+    void cancel() {
+        mGeneration.incrementAndGet();
+    }
+
+    /**
+     * 主线程调用，old是提交时adapter数据的快照
+     */
+    void submit(ExpandableSnapshot<T> old, SectionBuilder<T> builder, int modCount) {
+        mExecutor.execute(new DiffRunn<>(this, old, builder, mGeneration.incrementAndGet(), modCount));
+    }
+
+    /**
+     * 所有adapter共用，线程数与cpu核数相同
+     */
+    private static synchronized ExecutorService getGroupDiffService() {
+        if (sGroupDiffService == null) {
+            sGroupDiffService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+                        private final AtomicInteger mCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "GroupDiff #" + mCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return sGroupDiffService;
+    }
+
+    /**
+     * 提交时adapter的数据，在后台线程从快照中整理出来
+     */
+    private static final class Sections<T> {
+        final List<T> mHeaders;
+        final List<T> mChilds;
+        final List<T> mGroups;
+        /**
+         * 分页group为null
+         */
+        final List<List<T>> mGroupChilds;
+        final int[] mGroupChildCounts;
+        final boolean[] mExpanded;
+        final List<T> mFooters;
+
+        Sections(ExpandableSnapshot<T> snapshot) {
+            mHeaders = snapshot.getHeaders();
+            mChilds = snapshot.getChilds();
+            int groupCount = snapshot.getGroupCount();
+            mGroups = new ArrayList<>(groupCount);
+            mGroupChilds = new ArrayList<>(groupCount);
+            mGroupChildCounts = new int[groupCount];
+            mExpanded = new boolean[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                mGroups.add(snapshot.getGroup(i));
+                mGroupChilds.add(snapshot.getGroupChilds(i));
+                mGroupChildCounts[i] = snapshot.getGroupChildCount(i);
+                mExpanded[i] = snapshot.isGroupExpanded(i);
+            }
+            mFooters = snapshot.getFooters();
+        }
+    }
+
+    private static class DiffRunn<T> implements Runnable {
+
+        private final SectionDiffer<T> mDiffer;
+        private final ExpandableSnapshot<T> mSnapshot;
+        private Sections<T> mOld;
+        private final SectionBuilder<T> mBuilder;
+        private final int mGeneration;
+        private final int mModCount;
+        private ExpandableAdapter<T> mAdapter;
+        private final IntArray mOps = new IntArray();
+
+        DiffRunn(SectionDiffer<T> differ,
+                 ExpandableSnapshot<T> snapshot,
+                 SectionBuilder<T> builder,
+                 int generation,
+                 int modCount) {
+            mDiffer = differ;
+            mSnapshot = snapshot;
+            mBuilder = builder;
+            mGeneration = generation;
+            mModCount = modCount;
+        }
+
+        @Override
+        public void run() {
+            mAdapter = mDiffer.mWRAdapter.get();
+            if (mAdapter == null) {
+                return;
+            }
+            mOld = new Sections<>(mSnapshot);
+            final IntArray ops;
+            try {
+                ops = diff() ? mOps : null;
+            } catch (RuntimeException e) {
+                XLog.e("Diff sections failed, %s", e.toString());
+                return;
+            } finally {
+                mAdapter = null;
+            }
+            if (ops == null) {
+                return;
+            }
+            final WeakReference<ExpandableAdapter<T>> wrAdapter = mDiffer.mWRAdapter;
+            mDiffer.mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    ExpandableAdapter<T> adapter = wrAdapter.get();
+                    if (adapter != null) {
+                        adapter.onSectionsDiffed(mBuilder, ops, mGeneration, mModCount);
+                    }
+                }
+            });
+        }
+
+        private boolean isCancelled() {
+            return mDiffer.mGeneration.get() != mGeneration;
+        }
+
+        /**
+         * 从后往前生成刷新操作，这样每个操作的位置都可以直接使用旧数据中的位置
+         *
+         * @return 被取消返回false
+         */
+        private boolean diff() {
+            int groupBegin = mOld.mHeaders.size() + mOld.mChilds.size();
+            int oldGroupCount = mOld.mGroups.size();
+            int[] oldGroupPrefix = new int[oldGroupCount + 1];
+            for (int i = 0; i < oldGroupCount; i++) {
+                oldGroupPrefix[i + 1] = oldGroupPrefix[i] + 1 + (mOld.mExpanded[i] ? mOld.mGroupChildCounts[i] : 0);
+            }
+            diffList(mOld.mFooters, mBuilder.mFooters.subList(0, mBuilder.mFooters.size()), groupBegin + oldGroupPrefix[oldGroupCount]);
+            if (isCancelled() || !diffGroups(groupBegin, oldGroupPrefix)) {
+                return false;
+            }
+            diffList(mOld.mChilds, mBuilder.mChilds.subList(0, mBuilder.mChilds.size()), mOld.mHeaders.size());
+            diffList(mOld.mHeaders, mBuilder.mHeaders.subList(0, mBuilder.mHeaders.size()), 0);
+            return !isCancelled();
+        }
+
+        private void diffList(List<T> oldList, List<T> newList, int itemBegin) {
+            diffList(oldList, newList, ListDiff.diff(oldList, newList), itemBegin);
+        }
+
+        private void diffList(List<T> oldList, List<T> newList, int[] oldToNew, int itemBegin) {
+            int prevOld = oldList.size();
+            int prevNew = newList.size();
+            for (int o = oldList.size() - 1; o >= -1; o--) {
+                int n = o >= 0 ? oldToNew[o] : -1;
+                if (o >= 0 && n == -1) {
+                    continue;
+                }
+                addOp(REMOVE, itemBegin + o + 1, prevOld - o - 1);
+                addOp(INSERT, itemBegin + o + 1, prevNew - n - 1);
+                if (o >= 0 && !mAdapter.areContentsTheSame(oldList.get(o), newList.get(n))) {
+                    addOp(CHANGE, itemBegin + o, 1);
+                }
+                prevOld = o;
+                prevNew = n;
+            }
+        }
+
+        private boolean diffGroups(int groupBegin, int[] oldGroupPrefix) {
+            List<GroupNode<T>> newNodes = mBuilder.mGroups;
+            List<T> newGroups = new ArrayList<>(newNodes.size());
+            for (int i = 0, size = newNodes.size(); i < size; i++) {
+                newGroups.add(newNodes.get(i).mGroup);
+            }
+            // 已经存在的group（包括移动了位置的）保留当前的展开状态
+            Map<T, Boolean> oldExpanded = new HashMap<>();
+            for (int o = 0, size = mOld.mGroups.size(); o < size; o++) {
+                oldExpanded.put(mOld.mGroups.get(o), mOld.mExpanded[o]);
+            }
+            for (int n = 0, size = newNodes.size(); n < size; n++) {
+                GroupNode<T> node = newNodes.get(n);
+                Boolean expanded = oldExpanded.get(node.mGroup);
+                if (expanded != null && expanded != node.mExpanded) {
+                    node.mExpanded = expanded;
+                    mBuilder.mGroupSizeTree.set(n, node.size());
+                }
+            }
+            int[] oldToNew = ListDiff.diff(mOld.mGroups, newGroups);
+            int[][] childOldToNew = diffGroupChilds(oldToNew);
+            if (childOldToNew == null) {
+                return false;
+            }
+            int prevOld = oldToNew.length;
+            int prevNew = newNodes.size();
+            for (int o = oldToNew.length - 1; o >= -1; o--) {
+                int n = o >= 0 ? oldToNew[o] : -1;
+                if (o >= 0 && n == -1) {
+                    continue;
+                } else if (isCancelled()) {
+                    return false;
+                }
+                int itemPosition = groupBegin + oldGroupPrefix[o + 1];
+                addOp(REMOVE, itemPosition, oldGroupPrefix[prevOld] - oldGroupPrefix[o + 1]);
+                addOp(INSERT, itemPosition, mBuilder.mGroupSizeTree.prefixSum(prevNew) - mBuilder.mGroupSizeTree.prefixSum(n + 1));
+                if (o >= 0) {
+                    int groupItemPosition = groupBegin + oldGroupPrefix[o];
+                    GroupNode<T> node = newNodes.get(n);
+                    if (node.mExpanded) {
+                        List<T> oldChilds = mOld.mGroupChilds.get(o);
+                        if (oldChilds == null) {
+                            addOp(REMOVE, groupItemPosition + 1, mOld.mGroupChildCounts[o]);
+                            addOp(INSERT, groupItemPosition + 1, node.mChildren.size());
+                        } else {
+                            diffList(oldChilds,
+                                    node.mChildren.subList(0, node.mChildren.size()),
+                                    childOldToNew[o],
+                                    groupItemPosition + 1);
+                        }
+                    }
+                    if (!mAdapter.areContentsTheSame(mOld.mGroups.get(o), node.mGroup)) {
+                        addOp(CHANGE, groupItemPosition, 1);
+                    }
+                }
+                prevOld = o;
+                prevNew = n;
+            }
+            return true;
+        }
+
+        /**
+         * 计算所有展开并且新旧数据中都存在的group的groupChild差异，各个group互不影响，数量多时并行计算
+         *
+         * @return 下标是旧的group position，被取消返回null
+         */
+        private int[][] diffGroupChilds(int[] groupOldToNew) {
+            final int[][] childOldToNew = new int[groupOldToNew.length][];
+            List<Callable<Void>> tasks = new ArrayList<>();
+            int total = 0;
+            for (int o = 0; o < groupOldToNew.length; o++) {
+                int n = groupOldToNew[o];
+                if (n == -1 || !mOld.mExpanded[o] || mOld.mGroupChilds.get(o) == null) {
+                    continue;
+                }
+                final int oldGroupPosition = o;
+                final List<T> oldChilds = mOld.mGroupChilds.get(o);
+                final Segment<T> newChilds = mBuilder.mGroups.get(n).mChildren;
+                total += oldChilds.size() + newChilds.size();
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (!isCancelled()) {
+                            childOldToNew[oldGroupPosition] = ListDiff.diff(oldChilds, newChilds.subList(0, newChilds.size()));
+                        }
+                        return null;
+                    }
+                });
+            }
+            if (tasks.size() < 2 || total < PARALLEL_GROUP_CHILD_COUNT) {
+                for (int i = 0, size = tasks.size(); i < size; i++) {
+                    try {
+                        tasks.get(i).call();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            } else {
+                try {
+                    List<Future<Void>> futures = getGroupDiffService().invokeAll(tasks);
+                    for (int i = 0, size = futures.size(); i < size; i++) {
+                        futures.get(i).get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return isCancelled() ? null : childOldToNew;
+        }
+
+        private void addOp(int type, int position, int count) {
+            if (count > 0) {
+                mOps.add(type);
+                mOps.add(position);
+                mOps.add(count);
+            }
+        }
+    }
+}
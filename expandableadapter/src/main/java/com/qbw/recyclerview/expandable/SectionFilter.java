@@ -0,0 +1,231 @@
+package com.qbw.recyclerview.expandable;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.qbw.log.XLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在后台线程按ItemFilter过滤开始过滤时保存的完整数据（快照），原数据不变。
+ * 过滤条件变窄时只过滤上一次的结果，过滤结果回到主线程之后通过submitSections计算差异刷新
+ */
+final class SectionFilter<T> {
+
+    /**
+     * 一次过滤的结果，保存的是item在mSource中的位置
+     */
+    static final class Result {
+        final IntArray mHeaders = new IntArray();
+        final IntArray mChilds = new IntArray();
+        final IntArray mGroups = new IntArray();
+        /**
+         * 与mGroups一一对应，null表示group匹配，显示所有groupChild
+         */
+        final List<IntArray> mGroupChilds = new ArrayList<>();
+        final IntArray mFooters = new IntArray();
+    }
+
+    private final WeakReference<ExpandableAdapter<T>> mWRAdapter;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+
+    private ItemFilter<T> mFilter;
+    /**
+     * 开始过滤时adapter的完整数据，不过滤时为null
+     */
+    ExpandableSnapshot<T> mSource;
+    /**
+     * 上一次显示的过滤结果以及对应的过滤条件
+     */
+    Result mResult;
+    String mConstraint;
+
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    SectionFilter(ExpandableAdapter<T> adapter) {
+        mWRAdapter = new WeakReference<>(adapter);
+    }
+
+    void setExecutor(Executor executor) {
+        mExecutor = executor != null ? executor : AsyncTask.THREAD_POOL_EXECUTOR;
+    }
+
+    ItemFilter<T> getFilter() {
+        return mFilter;
+    }
+
+    void setFilter(ItemFilter<T> filter) {
+        mFilter = filter;
+        mResult = null;
+        mConstraint = null;
+    }
+
+    int getGeneration() {
+        return mGeneration.get();
+    }
+
+    /**
+     * 放弃正在进行的过滤，并丢弃保存的数据
+     */
+    void reset() {
+        mGeneration.incrementAndGet();
+        mSource = null;
+        mResult = null;
+        mConstraint = null;
+    }
+
+    /**
+     * 主线程调用，mSource不为null
+     */
+    void filter(String constraint) {
+        Result base = mResult != null && mFilter.isNarrower(constraint, mConstraint) ? mResult : null;
+        mExecutor.execute(new FilterRunn<>(this,
+                mSource,
+                mFilter,
+                constraint,
+                base,
+                mGeneration.incrementAndGet()));
+    }
+
+    /**
+     * @return 包含mSource所有数据的builder
+     */
+    static <T> SectionBuilder<T> build(ExpandableSnapshot<T> source) {
+        SectionBuilder<T> builder = new SectionBuilder<>();
+        builder.addHeaders(source.getHeaders());
+        builder.addChilds(source.getChilds());
+        for (int i = 0, groupCount = source.getGroupCount(); i < groupCount; i++) {
+            builder.addGroup(source.getGroup(i), source.getGroupChilds(i), source.isGroupExpanded(i));
+        }
+        builder.addFooters(source.getFooters());
+        return builder;
+    }
+
+    private static class FilterRunn<T> implements Runnable {
+
+        private final SectionFilter<T> mSectionFilter;
+        private final ExpandableSnapshot<T> mSource;
+        private final ItemFilter<T> mFilter;
+        private final String mConstraint;
+        private final Result mBase;
+        private final int mGeneration;
+
+        FilterRunn(SectionFilter<T> sectionFilter,
+                   ExpandableSnapshot<T> source,
+                   ItemFilter<T> filter,
+                   String constraint,
+                   Result base,
+                   int generation) {
+            mSectionFilter = sectionFilter;
+            mSource = source;
+            mFilter = filter;
+            mConstraint = constraint;
+            mBase = base;
+            mGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            final Result result = new Result();
+            final SectionBuilder<T> builder;
+            try {
+                if (!filter(result)) {
+                    return;
+                }
+                builder = build(result);
+            } catch (RuntimeException e) {
+                XLog.e("Filter sections failed, %s", e.toString());
+                return;
+            }
+            final WeakReference<ExpandableAdapter<T>> wrAdapter = mSectionFilter.mWRAdapter;
+            mSectionFilter.mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    ExpandableAdapter<T> adapter = wrAdapter.get();
+                    if (adapter != null) {
+                        adapter.onSectionsFiltered(result, mConstraint, builder, mGeneration);
+                    }
+                }
+            });
+        }
+
+        private boolean isCancelled() {
+            return mSectionFilter.mGeneration.get() != mGeneration;
+        }
+
+        /**
+         * @return 被取消返回false
+         */
+        private boolean filter(Result result) {
+            filterList(mSource.getHeaders(), mBase != null ? mBase.mHeaders : null, result.mHeaders);
+            filterList(mSource.getChilds(), mBase != null ? mBase.mChilds : null, result.mChilds);
+            int groupCount = mBase != null ? mBase.mGroups.size() : mSource.getGroupCount();
+            for (int i = 0; i < groupCount; i++) {
+                if (isCancelled()) {
+                    return false;
+                }
+                int groupPosition = mBase != null ? mBase.mGroups.get(i) : i;
+                if (mFilter.accept(mSource.getGroup(groupPosition), mConstraint)) {
+                    result.mGroups.add(groupPosition);
+                    result.mGroupChilds.add(null);
+                    continue;
+                }
+                IntArray groupChilds = new IntArray();
+                filterList(mSource.getGroupChilds(groupPosition),
+                        mBase != null ? mBase.mGroupChilds.get(i) : null,
+                        groupChilds);
+                if (groupChilds.size() > 0) {
+                    result.mGroups.add(groupPosition);
+                    result.mGroupChilds.add(groupChilds);
+                }
+            }
+            filterList(mSource.getFooters(), mBase != null ? mBase.mFooters : null, result.mFooters);
+            return !isCancelled();
+        }
+
+        /**
+         * @param base null时过滤items中所有的item，否则只过滤base中的位置
+         */
+        private void filterList(List<T> items, IntArray base, IntArray result) {
+            int size = base != null ? base.size() : items.size();
+            for (int i = 0; i < size; i++) {
+                int position = base != null ? base.get(i) : i;
+                if (mFilter.accept(items.get(position), mConstraint)) {
+                    result.add(position);
+                }
+            }
+        }
+
+        private SectionBuilder<T> build(Result result) {
+            SectionBuilder<T> builder = new SectionBuilder<>();
+            builder.addHeaders(pick(mSource.getHeaders(), result.mHeaders));
+            builder.addChilds(pick(mSource.getChilds(), result.mChilds));
+            for (int i = 0, size = result.mGroups.size(); i < size; i++) {
+                int groupPosition = result.mGroups.get(i);
+                IntArray groupChilds = result.mGroupChilds.get(i);
+                List<T> sourceGroupChilds = mSource.getGroupChilds(groupPosition);
+                builder.addGroup(mSource.getGroup(groupPosition),
+                        groupChilds != null ? pick(sourceGroupChilds, groupChilds) : sourceGroupChilds,
+                        mSource.isGroupExpanded(groupPosition));
+            }
+            builder.addFooters(pick(mSource.getFooters(), result.mFooters));
+            return builder;
+        }
+
+        private static <T> List<T> pick(List<T> items, IntArray positions) {
+            int size = positions.size();
+            List<T> picked = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                picked.add(items.get(positions.get(i)));
+            }
+            return picked;
+        }
+    }
+}
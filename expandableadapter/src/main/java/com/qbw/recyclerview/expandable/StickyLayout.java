@@ -6,13 +6,12 @@ import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 
 import com.qbw.log.XLog;
 import com.qbw.recyclerview.util.PositionUtil;
 
-import java.lang.ref.WeakReference;
-
 /**
  * @author qbw
  * 2016/04/22 14:19
@@ -27,9 +26,15 @@ public class StickyLayout extends FrameLayout {
     private int mStickyGroupY = -1;
 
     /**
-     * Recyclerview item个数改变触发onLayout，但是在onLayout里面不能及时获取RecyclerView的itemview坐标，需要延迟一下再去获取
+     * 已经不再使用，见{@link #setUpdateDelay(int)}
+     */
+    private int mUpdateDelay = 80;
+
+    /**
+     * adapter数据变化或者StickyLayout大小变化之后为true，RecyclerView这一帧layout完成之后（onGlobalLayout）再update，
+     * 这时itemView的坐标已经是新的
      */
-    private int mUpdateDelay = 80;//5帧
+    private boolean mStickyDirty;
 
     private RecyclerView mRecyclerView;
     private ExpandableAdapter mExpandableAdapter;
@@ -41,6 +46,13 @@ public class StickyLayout extends FrameLayout {
     private boolean mStickyGroup;
 
     private StickyScrollListener mStickyScrollListener = new StickyScrollListener();
+    private StickyDataObserver mStickyDataObserver = new StickyDataObserver();
+    private StickyGlobalLayoutListener mStickyGlobalLayoutListener = new StickyGlobalLayoutListener();
+    /**
+     * mStickyDataObserver只在attach期间注册，避免adapter比StickyLayout活得久时一直引用StickyLayout
+     */
+    private boolean mAttached;
+    private boolean mDataObserverRegistered;
 
     public StickyLayout(Context context) {
         super(context);
@@ -58,6 +70,13 @@ public class StickyLayout extends FrameLayout {
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
         if (XLog.isEnabled()) XLog.d("changed[%b],mStickyGroupY[%d]", changed, mStickyGroupY);
+        if (changed) {
+            mStickyDirty = true;
+        }
+        layoutStickyGroup();
+    }
+
+    private void layoutStickyGroup() {
         if (getChildCount() > 1) {
             View childView = getChildAt(1);
             childView.layout(childView.getLeft(),
@@ -69,41 +88,56 @@ public class StickyLayout extends FrameLayout {
                 childView.getHitRect(rect);
                 XLog.v("sticky group rect %s", rect.toString());
             }
-            removeCallbacks(mUpdateDelayRunn);
-            postDelayed(mUpdateDelayRunn, getUpdateDelay());
         }
-
     }
 
-    public int getUpdateDelay() {
-        return mUpdateDelay;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        getViewTreeObserver().addOnGlobalLayoutListener(mStickyGlobalLayoutListener);
+        registerDataObserver();
+        // detach期间的数据变化没有收到
+        mStickyDirty = true;
     }
 
-    public void setUpdateDelay(int updateDelay) {
-        mUpdateDelay = updateDelay;
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttached = false;
+        getViewTreeObserver().removeGlobalOnLayoutListener(mStickyGlobalLayoutListener);
+        unregisterDataObserver();
+        super.onDetachedFromWindow();
     }
 
-    private static class UpdateDelayRunn implements Runnable {
-
-        private WeakReference<StickyLayout> mWRStickyLayout;
-
-        public UpdateDelayRunn(StickyLayout stickyLayout) {
-            mWRStickyLayout = new WeakReference<>(stickyLayout);
+    private void registerDataObserver() {
+        if (mAttached && !mDataObserverRegistered && mExpandableAdapter != null) {
+            mExpandableAdapter.registerAdapterDataObserver(mStickyDataObserver);
+            mDataObserverRegistered = true;
         }
+    }
 
-        @Override
-        public void run() {
-            StickyLayout sl = mWRStickyLayout.get();
-            if (sl == null) return;
-            XLog.d("delay update stickgroup y");
-            sl.update();
+    private void unregisterDataObserver() {
+        if (mDataObserverRegistered) {
+            mExpandableAdapter.unregisterAdapterDataObserver(mStickyDataObserver);
+            mDataObserverRegistered = false;
         }
     }
 
     /**
-     * 不能实时获取NextViewHolder的坐标
+     * @deprecated 悬浮group在RecyclerView layout完成的同一帧更新，不再延迟
      */
-    private UpdateDelayRunn mUpdateDelayRunn = new UpdateDelayRunn(this);
+    @Deprecated
+    public int getUpdateDelay() {
+        return mUpdateDelay;
+    }
+
+    /**
+     * @deprecated 悬浮group在RecyclerView layout完成的同一帧更新，不再延迟，设置的值不起作用
+     */
+    @Deprecated
+    public void setUpdateDelay(int updateDelay) {
+        mUpdateDelay = updateDelay;
+    }
 
 
     /**
@@ -111,6 +145,10 @@ public class StickyLayout extends FrameLayout {
      */
     public void init(boolean stickyGroup) {
         mStickyGroup = stickyGroup;
+        if (mRecyclerView != null) {
+            mRecyclerView.removeOnScrollListener(mStickyScrollListener);
+            unregisterDataObserver();
+        }
         mRecyclerView = (RecyclerView) getChildAt(0);
         mExpandableAdapter = (ExpandableAdapter) mRecyclerView.getAdapter();
         if (mExpandableAdapter == null) {
@@ -120,6 +158,8 @@ public class StickyLayout extends FrameLayout {
         }
         mStickyListener = (StickyListener) mExpandableAdapter;
         mRecyclerView.addOnScrollListener(mStickyScrollListener);
+        registerDataObserver();
+        mStickyDirty = true;
     }
 
     private boolean update() {
@@ -220,17 +260,59 @@ public class StickyLayout extends FrameLayout {
         @Override
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
             if (XLog.isEnabled()) XLog.v("dx[%d],dy[%d]", dx, dy);
-            if (update()) {
-                removeCallbacks(mUpdateDelayRunn);
-            }
+            update();
         }
 
         @Override
         public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
             if (XLog.isEnabled()) XLog.v("newState[%d]", newState);
-            if (update()) {
-                removeCallbacks(mUpdateDelayRunn);
+            update();
+        }
+    }
+
+    /**
+     * 数据变化之后RecyclerView会在下一帧重新layout，这里只做标记
+     */
+    private class StickyDataObserver extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onChanged() {
+            mStickyDirty = true;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mStickyDirty = true;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mStickyDirty = true;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mStickyDirty = true;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mStickyDirty = true;
+        }
+    }
+
+    /**
+     * layout完成之后、draw之前调用，直接把悬浮group摆到新的位置，与数据变化在同一帧显示
+     */
+    private class StickyGlobalLayoutListener implements ViewTreeObserver.OnGlobalLayoutListener {
+        @Override
+        public void onGlobalLayout() {
+            if (!mStickyDirty || mRecyclerView == null) {
+                return;
             }
+            mStickyDirty = false;
+            if (XLog.isEnabled()) XLog.v("update sticky group after layout");
+            update();
+            layoutStickyGroup();
         }
     }
 
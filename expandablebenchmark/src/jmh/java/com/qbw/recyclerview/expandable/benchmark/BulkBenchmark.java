@@ -0,0 +1,74 @@
+package com.qbw.recyclerview.expandable.benchmark;
+
+import com.qbw.recyclerview.expandable.ExpandableModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整体构建以及清空，每次迭代只执行一次，clear用到的数据在迭代之前准备好，不计入时间
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+public class BulkBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int groupCount;
+
+    @Param({"10", "100"})
+    public int childCount;
+
+    private ModelData mData;
+    private ExpandableModel<String> mModel;
+
+    @Setup
+    public void setup() {
+        mData = new ModelData(groupCount, childCount);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        mModel = mData.newModel(new NoOpModelListener());
+    }
+
+    /**
+     * SectionBuilder一次性构建，只通知一次
+     */
+    @Benchmark
+    public ExpandableModel<String> buildSections() {
+        return mData.newModel(new NoOpModelListener());
+    }
+
+    /**
+     * 依次addGroup、addGroupChild，每次都通知
+     */
+    @Benchmark
+    public ExpandableModel<String> buildIncremental() {
+        ExpandableModel<String> model = new ExpandableModel<>(new NoOpModelListener());
+        for (int i = 0; i < groupCount; i++) {
+            int groupPosition = model.addGroup(mData.mGroups.get(i));
+            model.addGroupChild(groupPosition, mData.mGroupChilds.get(i));
+        }
+        return model;
+    }
+
+    @Benchmark
+    public ExpandableModel<String> clear() {
+        mModel.clear();
+        return mModel;
+    }
+}
@@ -0,0 +1,44 @@
+package com.qbw.recyclerview.expandable.benchmark;
+
+import com.qbw.recyclerview.expandable.ExpandableModel;
+import com.qbw.recyclerview.expandable.SectionBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * groupCount个group，每个group有childCount个groupChild，都是展开的
+ */
+final class ModelData {
+
+    final List<String> mGroups;
+    final List<List<String>> mGroupChilds;
+
+    ModelData(int groupCount, int childCount) {
+        mGroups = new ArrayList<>(groupCount);
+        mGroupChilds = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            String group = "g" + i;
+            List<String> groupChilds = new ArrayList<>(childCount);
+            for (int j = 0; j < childCount; j++) {
+                groupChilds.add(group + "c" + j);
+            }
+            mGroups.add(group);
+            mGroupChilds.add(groupChilds);
+        }
+    }
+
+    SectionBuilder<String> newBuilder() {
+        SectionBuilder<String> builder = new SectionBuilder<>();
+        for (int i = 0, size = mGroups.size(); i < size; i++) {
+            builder.addGroup(mGroups.get(i), mGroupChilds.get(i));
+        }
+        return builder;
+    }
+
+    ExpandableModel<String> newModel(NoOpModelListener listener) {
+        ExpandableModel<String> model = new ExpandableModel<>(listener);
+        model.setSections(newBuilder());
+        return model;
+    }
+}
@@ -0,0 +1,68 @@
+package com.qbw.recyclerview.expandable.benchmark;
+
+import com.qbw.recyclerview.expandable.ExpandableModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在随机的group里面插入一个groupChild再删除，数据量保持不变，结果是一次插入加一次删除的时间
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MutationBenchmark {
+
+    private static final int POSITION_COUNT = 1024;
+
+    @Param({"100", "1000", "10000"})
+    public int groupCount;
+
+    @Param({"10", "100"})
+    public int childCount;
+
+    @Param({"false", "true"})
+    public boolean itemIndexEnabled;
+
+    private ExpandableModel<String> mModel;
+
+    private final int[] mGroupPositions = new int[POSITION_COUNT];
+    private final int[] mGroupChildPositions = new int[POSITION_COUNT];
+    private final String[] mGroupChilds = new String[POSITION_COUNT];
+    private int mCursor;
+
+    @Setup
+    public void setup() {
+        mModel = new ModelData(groupCount, childCount).newModel(new NoOpModelListener());
+        mModel.setItemIndexEnabled(itemIndexEnabled);
+        Random random = new Random(42);
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            mGroupPositions[i] = random.nextInt(groupCount);
+            mGroupChildPositions[i] = random.nextInt(childCount + 1);
+            mGroupChilds[i] = "n" + i;
+        }
+    }
+
+    @Benchmark
+    public int[] addRemoveGroupChild() {
+        mCursor = (mCursor + 1) & (POSITION_COUNT - 1);
+        int groupPosition = mGroupPositions[mCursor];
+        int groupChildPosition = mGroupChildPositions[mCursor];
+        int[] positions = mModel.addGroupChild(groupPosition, groupChildPosition, mGroupChilds[mCursor]);
+        mModel.removeGroupChild(groupPosition, groupChildPosition);
+        return positions;
+    }
+}
@@ -0,0 +1,36 @@
+package com.qbw.recyclerview.expandable.benchmark;
+
+import com.qbw.recyclerview.expandable.ExpandableModelListener;
+
+/**
+ * 代替RecyclerView接收通知，只计数，避免测到RecyclerView的开销
+ */
+final class NoOpModelListener implements ExpandableModelListener {
+
+    int mNotifyCount;
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onItemMoved(int fromPosition, int toPosition) {
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onDataSetChanged() {
+        mNotifyCount++;
+    }
+}
@@ -0,0 +1,98 @@
+package com.qbw.recyclerview.expandable.benchmark;
+
+import com.qbw.recyclerview.expandable.ExpandableModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * group position与item position之间的换算以及查找group，每次调用使用随机（固定种子）的位置
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PositionBenchmark {
+
+    /**
+     * 随机位置的个数，2的幂
+     */
+    private static final int POSITION_COUNT = 1024;
+
+    @Param({"100", "1000", "10000"})
+    public int groupCount;
+
+    @Param({"10", "100"})
+    public int childCount;
+
+    /**
+     * 关闭时indexOfGroup需要遍历查找
+     */
+    @Param({"false", "true"})
+    public boolean itemIndexEnabled;
+
+    private ExpandableModel<String> mModel;
+
+    private final int[] mGroupPositions = new int[POSITION_COUNT];
+    private final String[] mGroups = new String[POSITION_COUNT];
+    private final int[] mGroupItemPositions = new int[POSITION_COUNT];
+    private final int[] mGroupChildItemPositions = new int[POSITION_COUNT];
+    private int mCursor;
+
+    @Setup
+    public void setup() {
+        ModelData data = new ModelData(groupCount, childCount);
+        mModel = data.newModel(new NoOpModelListener());
+        mModel.setItemIndexEnabled(itemIndexEnabled);
+        Random random = new Random(42);
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            int groupPosition = random.nextInt(groupCount);
+            mGroupPositions[i] = groupPosition;
+            mGroups[i] = data.mGroups.get(groupPosition);
+            mGroupItemPositions[i] = mModel.convertGroupPosition(groupPosition);
+            mGroupChildItemPositions[i] = mModel.convertGroupChildPosition(groupPosition, random.nextInt(childCount));
+        }
+    }
+
+    private int next() {
+        mCursor = (mCursor + 1) & (POSITION_COUNT - 1);
+        return mCursor;
+    }
+
+    @Benchmark
+    public int convertGroupPosition() {
+        return mModel.convertGroupPosition(mGroupPositions[next()]);
+    }
+
+    @Benchmark
+    public int getGroupPosition() {
+        return mModel.getGroupPosition(mGroupItemPositions[next()]);
+    }
+
+    @Benchmark
+    public int[] getGroupChildPosition() {
+        return mModel.getGroupChildPosition(mGroupChildItemPositions[next()]);
+    }
+
+    @Benchmark
+    public int indexOfGroup() {
+        return mModel.indexOfGroup(mGroups[next()]);
+    }
+
+    @Benchmark
+    public String getItem() {
+        return mModel.getItem(mGroupChildItemPositions[next()]);
+    }
+}
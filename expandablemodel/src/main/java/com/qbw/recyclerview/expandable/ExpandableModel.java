@@ -0,0 +1,2851 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * header、child、group（以及groupChild）、footer的数据以及位置换算，不依赖android，可以在普通的java环境中使用。
+ * 数据变化通过{@link ExpandableModelListener}通知，ExpandableAdapter只是把通知转发给RecyclerView。
+ * 不是线程安全的，需要在同一个线程（android上是主线程）调用
+ */
+public final class ExpandableModel<T> {
+
+    /**
+     * 分页group（{@link #addPagedGroup(int, Object, int, boolean)}）里面还没有加载的groupChild的viewType，
+     * onCreateViewHolder需要为它创建占位的ViewHolder；所在的页加载完成之后会通知修改，再按item计算viewType
+     */
+    public static final int VIEW_TYPE_PAGED_PLACEHOLDER = Integer.MIN_VALUE + 1;
+
+    /**
+     * moveGroup时逐个通知notifyItemMoved的最大item个数
+     */
+    private static final int MAX_MOVED_ITEM_COUNT = 8;
+
+    private final ExpandableModelListener mListener;
+    private ItemViewTypeProvider<T> mItemViewTypeProvider;
+
+    private Segment<T> mHeaders;
+    private Segment<T> mChilds;
+    private List<GroupNode<T>> mGroups;
+    private Segment<T> mFooters;
+
+    private int mHeaderCount;
+    private int mChildCount;
+    private int mGroupCount;
+    private IntArray mGroupChildCount;
+    /**
+     * 每个group占用的item个数（1 + groupChildCount）的前缀和
+     */
+    private PrefixSumTree mGroupSizeTree;
+    private int mGroupAndGroupChildCount;
+    private int mFooterCount;
+
+    /**
+     * item -> position 索引，默认关闭，见{@link #setItemIndexEnabled(boolean)}
+     */
+    private ItemIndex<T> mItemIndex;
+
+    /**
+     * header、child、group、footer 各自的 viewType -> position 索引，第一次调用XXXPositionByViewType时创建，之后增量维护
+     */
+    private final ViewTypeIndex[] mViewTypeIndexes = new ViewTypeIndex[4];
+
+    /**
+     * 延迟加载groupChild，见{@link #addLazyGroup(int, Object, boolean)}
+     */
+    private GroupChildProvider<T> mGroupChildProvider;
+    private GroupChildPageSource<T> mGroupChildPageSource;
+    private GroupChildRequester<T> mGroupChildRequester;
+    /**
+     * 分页group每页groupChild个数以及最多缓存的页数，见{@link #addPagedGroup(int, Object, int, boolean)}
+     */
+    private int mGroupChildPageSize = 50;
+    private int mMaxCachedGroupChildPages = 8;
+
+    /**
+     * beginBatch/endBatch之间的刷新通知先记录在这里，见{@link #beginBatch()}
+     */
+    private final NotifyBatch mNotifyBatch = new NotifyBatch();
+    private int mBatchDepth;
+
+    /**
+     * 插入、删除、移动、notifyDataSetChanged以及替换item时加1，ExpandableAdapter用来判断后台计算差异用的快照是否过期；
+     * 只通知修改（payload、分页group加载完成）不改变数据，不加1
+     */
+    private int mModCount;
+
+    /**
+     * 第一次调用{@link #snapshot()}之后才会创建，与mGroups一一对应；
+     * 修改过的group记录在mSnapshotDirtyGroups里面，下一次snapshot时才重新freeze
+     */
+    private ArrayList<ExpandableSnapshot.Group<T>> mSnapshotGroups;
+    private boolean mSnapshotGroupsShared;
+    private final List<GroupNode<T>> mSnapshotDirtyGroups = new ArrayList<>();
+
+    /**
+     * 见{@link #setItemKeyProvider(ItemKeyProvider)}
+     */
+    private StableIds<T> mStableIds;
+
+    /**
+     * 见{@link #setGroupComparator(Comparator)}、{@link #setGroupChildComparator(Comparator)}
+     */
+    private Comparator<T> mGroupComparator;
+    private Comparator<T> mGroupChildComparator;
+
+    public ExpandableModel(ExpandableModelListener listener) {
+        mListener = listener;
+        mHeaders = new Segment<>(ItemIndex.HEADER, null);
+        mChilds = new Segment<>(ItemIndex.CHILD, null);
+        mGroups = new ArrayList<>();
+        mFooters = new Segment<>(ItemIndex.FOOTER, null);
+        mGroupChildCount = new IntArray();
+        mGroupSizeTree = new PrefixSumTree();
+    }
+
+    /**
+     * 设置了{@link #setItemKeyProvider(ItemKeyProvider)}时返回item的稳定id，否则返回position
+     */
+    public final long getItemId(int position) {
+        if (mStableIds == null) {
+            return position;
+        }
+        if (mStableIds.needsTrim()) {
+            trimStableIds();
+        }
+        int itemPosition = position;
+        if (itemPosition < mHeaderCount) {
+            return mStableIds.getId(ItemIndex.HEADER, mHeaders.get(itemPosition));
+        }
+        itemPosition -= mHeaderCount;
+        if (itemPosition < mChildCount) {
+            return mStableIds.getId(ItemIndex.CHILD, mChilds.get(itemPosition));
+        }
+        itemPosition -= mChildCount;
+        if (itemPosition < mGroupAndGroupChildCount) {
+            int groupPosition = mGroupSizeTree.indexOf(itemPosition);
+            int childOffset = itemPosition - mGroupSizeTree.prefixSum(groupPosition);
+            GroupNode<T> node = mGroups.get(groupPosition);
+            if (childOffset == 0) {
+                return mStableIds.getId(ItemIndex.GROUP, node.mGroup);
+            } else if (node.mPages != null) {
+                return mStableIds.getPagedId(node.mGroup, childOffset - 1, node.mPages.mCount);
+            }
+            return mStableIds.getId(ItemIndex.GROUP_CHILD, node.mChildren.get(childOffset - 1));
+        }
+        itemPosition -= mGroupAndGroupChildCount;
+        return mStableIds.getId(ItemIndex.FOOTER, mFooters.get(itemPosition));
+    }
+
+    /**
+     * 只保留正在显示的item的id，收起的groupChild展开时本来就是插入，重新分配id没有影响
+     */
+    private void trimStableIds() {
+        StableIds<T> ids = mStableIds;
+        ids.beginTrim();
+        for (int i = 0; i < mHeaderCount; i++) {
+            ids.retain(ItemIndex.HEADER, mHeaders.get(i));
+        }
+        for (int i = 0; i < mChildCount; i++) {
+            ids.retain(ItemIndex.CHILD, mChilds.get(i));
+        }
+        for (int i = 0; i < mGroupCount; i++) {
+            GroupNode<T> node = mGroups.get(i);
+            ids.retain(ItemIndex.GROUP, node.mGroup);
+            if (!node.mExpanded) {
+                continue;
+            }
+            if (node.mPages != null) {
+                ids.retainPaged(node.mGroup);
+            } else {
+                for (int j = 0, size = node.mChildren.size(); j < size; j++) {
+                    ids.retain(ItemIndex.GROUP_CHILD, node.mChildren.get(j));
+                }
+            }
+        }
+        for (int i = 0; i < mFooterCount; i++) {
+            ids.retain(ItemIndex.FOOTER, mFooters.get(i));
+        }
+        ids.endTrim(getItemCount());
+    }
+
+    /**
+     * 设置之后getItemId返回由key生成的id，同一个key的item在增删移动（包括groupChild在group之间移动）之后id不变，
+     * 传null关闭。分页group的groupChild按位置分配id，所在的页加载前后id不变。
+     * 只缓存最近显示过的item的id（不超过item个数的两倍），已经删除的item的id会被丢弃，{@link #clear()}时全部清空
+     */
+    public final void setItemKeyProvider(ItemKeyProvider<T> provider) {
+        mStableIds = provider != null ? new StableIds<>(provider) : null;
+    }
+
+    public final boolean hasStableIds() {
+        return mStableIds != null;
+    }
+
+    /**
+     * 没有设置时viewType都是0
+     */
+    public final void setItemViewTypeProvider(ItemViewTypeProvider<T> provider) {
+        mItemViewTypeProvider = provider;
+        invalidateItemViewTypes();
+    }
+
+    /**
+     * viewType第一次获取时通过{@link ItemViewTypeProvider}计算并缓存，之后直接读取缓存；
+     * item的viewType改变之后需要调用{@link #invalidateItemViewType(int)}
+     */
+    public final int getItemViewType(int position) {
+        if (position < mHeaderCount) {
+            return getItemViewType(mHeaders, position, position);
+        }
+        int offset = position - mHeaderCount;
+        if (offset < mChildCount) {
+            return getItemViewType(mChilds, offset, position);
+        }
+        offset -= mChildCount;
+        if (offset < mGroupAndGroupChildCount) {
+            int groupPosition = mGroupSizeTree.indexOf(offset);
+            int childOffset = offset - mGroupSizeTree.prefixSum(groupPosition);
+            GroupNode<T> node = mGroups.get(groupPosition);
+            if (childOffset > 0) {
+                if (node.mPages != null) {
+                    return getPagedItemViewType(node.mPages, childOffset - 1, position);
+                }
+                return getItemViewType(node.mChildren, childOffset - 1, position);
+            }
+            if (node.mViewType == Segment.VIEW_TYPE_UNKNOWN) {
+                node.mViewType = resolveItemViewType(node.mGroup, position);
+            }
+            return node.mViewType;
+        }
+        offset -= mGroupAndGroupChildCount;
+        return getItemViewType(mFooters, offset, position);
+    }
+
+    private int getItemViewType(Segment<T> segment, int index, int position) {
+        int vt = segment.getViewType(index);
+        if (vt == Segment.VIEW_TYPE_UNKNOWN) {
+            vt = resolveItemViewType(segment.get(index), position);
+            segment.setViewType(index, vt);
+        }
+        return vt;
+    }
+
+    /**
+     * 没有加载的groupChild直接返回{@link #VIEW_TYPE_PAGED_PLACEHOLDER}，不会触发加载；
+     * 加载之后的viewType和页一起缓存
+     */
+    private int getPagedItemViewType(GroupChildPages<T> pages, int index, int position) {
+        if (!pages.isLoaded(index)) {
+            return VIEW_TYPE_PAGED_PLACEHOLDER;
+        }
+        int vt = pages.getViewType(index);
+        if (vt == Segment.VIEW_TYPE_UNKNOWN) {
+            vt = resolveItemViewType(pages.get(index), position);
+            pages.setViewType(index, vt);
+        }
+        return vt;
+    }
+
+    private int resolveItemViewType(T item, int position) {
+        return mItemViewTypeProvider != null ? mItemViewTypeProvider.getItemViewType(item, position) : 0;
+    }
+
+    /**
+     * item的viewType改变之后调用，重新计算缓存的viewType
+     */
+    public final void invalidateItemViewType(int itemPosition) {
+        if (!checkItemPosition(itemPosition)) {
+            return;
+        }
+        if (itemPosition < mHeaderCount) {
+            mHeaders.setViewType(itemPosition, Segment.VIEW_TYPE_UNKNOWN);
+            onSectionItemChanged(0, itemPosition);
+            return;
+        }
+        int offset = itemPosition - mHeaderCount;
+        if (offset < mChildCount) {
+            mChilds.setViewType(offset, Segment.VIEW_TYPE_UNKNOWN);
+            onSectionItemChanged(1, offset);
+            return;
+        }
+        offset -= mChildCount;
+        if (offset < mGroupAndGroupChildCount) {
+            int groupPosition = mGroupSizeTree.indexOf(offset);
+            int childOffset = offset - mGroupSizeTree.prefixSum(groupPosition);
+            GroupNode<T> node = mGroups.get(groupPosition);
+            if (childOffset > 0) {
+                if (node.mPages == null) {
+                    node.mChildren.setViewType(childOffset - 1, Segment.VIEW_TYPE_UNKNOWN);
+                } else {
+                    node.mPages.setViewType(childOffset - 1, Segment.VIEW_TYPE_UNKNOWN);
+                }
+            } else {
+                node.mViewType = Segment.VIEW_TYPE_UNKNOWN;
+                onSectionItemChanged(2, groupPosition);
+            }
+            return;
+        }
+        offset -= mGroupAndGroupChildCount;
+        mFooters.setViewType(offset, Segment.VIEW_TYPE_UNKNOWN);
+        onSectionItemChanged(3, offset);
+    }
+
+    /**
+     * 所有item的viewType都需要重新计算
+     */
+    public final void invalidateItemViewTypes() {
+        mHeaders.invalidateViewTypes();
+        mChilds.invalidateViewTypes();
+        for (int i = 0; i < mGroupCount; i++) {
+            GroupNode<T> node = mGroups.get(i);
+            node.mViewType = Segment.VIEW_TYPE_UNKNOWN;
+            node.mChildren.invalidateViewTypes();
+            if (node.mPages != null) {
+                node.mPages.invalidateViewTypes();
+            }
+        }
+        mFooters.invalidateViewTypes();
+        Arrays.fill(mViewTypeIndexes, null);
+    }
+
+    public final T getItem(int itemPosition) {
+        if (itemPosition < mHeaderCount) {
+            return mHeaders.get(itemPosition);
+        }
+        itemPosition -= mHeaderCount;
+        if (itemPosition < mChildCount) {
+            return mChilds.get(itemPosition);
+        }
+        itemPosition -= mChildCount;
+        if (itemPosition < mGroupAndGroupChildCount) {
+            int groupPosition = mGroupSizeTree.indexOf(itemPosition);
+            int childOffset = itemPosition - mGroupSizeTree.prefixSum(groupPosition);
+            GroupNode<T> node = mGroups.get(groupPosition);
+            if (childOffset == 0) {
+                return node.mGroup;
+            }
+            return node.mPages != null ? getPagedGroupChild(node, childOffset - 1) : node.mChildren.get(childOffset - 1);
+        }
+        itemPosition -= mGroupAndGroupChildCount;
+        return mFooters.get(itemPosition);
+    }
+
+    /**
+     * 修改指定位置的item，不通知刷新
+     */
+    private void setItem(int itemPosition, T item) {
+        onItemReplaced();
+        if (itemPosition < mHeaderCount) {
+            mHeaders.set(itemPosition, item);
+            onSectionItemChanged(0, itemPosition);
+            return;
+        }
+        itemPosition -= mHeaderCount;
+        if (itemPosition < mChildCount) {
+            mChilds.set(itemPosition, item);
+            onSectionItemChanged(1, itemPosition);
+            return;
+        }
+        itemPosition -= mChildCount;
+        if (itemPosition < mGroupAndGroupChildCount) {
+            int groupPosition = mGroupSizeTree.indexOf(itemPosition);
+            int childOffset = itemPosition - mGroupSizeTree.prefixSum(groupPosition);
+            GroupNode<T> node = mGroups.get(groupPosition);
+            if (childOffset == 0) {
+                setGroup(node, item);
+                onSectionItemChanged(2, groupPosition);
+            } else if (node.mPages != null) {
+                if (!node.mPages.set(childOffset - 1, item)) {
+                    ModelLog.w("Group child page not loaded, ignore set");
+                }
+            } else {
+                node.mChildren.set(childOffset - 1, item);
+                markSnapshotDirty(node);
+            }
+            return;
+        }
+        itemPosition -= mGroupAndGroupChildCount;
+        mFooters.set(itemPosition, item);
+        onSectionItemChanged(3, itemPosition);
+    }
+
+    /**
+     * 打开之后会为所有item建立 item -> position 的索引，并在每次增删改时增量维护，
+     * getItemPosition、indexOfXXX、getXXXPosition(T)、removeXXX(T)以及addGroup的查重都变为O(1)。
+     * item需要正确实现equals和hashCode，并且放入adapter之后hashCode不能改变。
+     */
+    public final void setItemIndexEnabled(boolean enabled) {
+        if (enabled == (mItemIndex != null)) {
+            return;
+        }
+        mItemIndex = enabled ? new ItemIndex<T>() : null;
+        attachItemIndex();
+    }
+
+    /**
+     * 所有分组使用mItemIndex，并把所有item放入索引
+     */
+    private void attachItemIndex() {
+        mHeaders.setItemIndex(mItemIndex);
+        mChilds.setItemIndex(mItemIndex);
+        for (int i = 0; i < mGroupCount; i++) {
+            GroupNode<T> node = mGroups.get(i);
+            if (mItemIndex != null) {
+                mItemIndex.put(node.mGroup, ItemIndex.GROUP, node, 0);
+            }
+            node.mChildren.setItemIndex(mItemIndex);
+        }
+        mFooters.setItemIndex(mItemIndex);
+    }
+
+    public final boolean isItemIndexEnabled() {
+        return mItemIndex != null;
+    }
+
+    /**
+     * @return item在adapter中的位置，-1表示不在指定的分组里面，-2表示索引没有打开或者有重复的item，需要遍历查找
+     */
+    private int findItemPosition(T item, int section) {
+        if (mItemIndex == null) {
+            return -2;
+        }
+        if (mItemIndex.needsRelocate()) {
+            relocateItemIndex();
+        }
+        ItemIndex.Slot<T> slot = mItemIndex.get(item);
+        if (slot == null) {
+            return -1;
+        } else if (slot.mAmbiguous) {
+            return -2;
+        } else if (section != -1 && section != slot.mSection) {
+            return -1;
+        }
+        switch (slot.mSection) {
+            case ItemIndex.HEADER:
+                return slot.mIndex;
+            case ItemIndex.CHILD:
+                return mHeaderCount + slot.mIndex;
+            case ItemIndex.GROUP:
+                return convertGroupPosition(slot.mNode.mPosition);
+            case ItemIndex.GROUP_CHILD:
+                if (!slot.mNode.mExpanded) {
+                    return -1;
+                }
+                return convertGroupPosition(slot.mNode.mPosition) + 1 + slot.mIndex;
+            case ItemIndex.FOOTER:
+                return mHeaderCount + mChildCount + mGroupAndGroupChildCount + slot.mIndex;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 重复的item删到只剩一个之后，遍历一次找到剩下的那个，重新建立准确的索引
+     */
+    private void relocateItemIndex() {
+        HashSet<T> items = mItemIndex.takeRelocations();
+        mHeaders.reindex(items);
+        mChilds.reindex(items);
+        for (int i = 0; i < mGroupCount && !items.isEmpty(); i++) {
+            GroupNode<T> node = mGroups.get(i);
+            if (items.remove(node.mGroup)) {
+                mItemIndex.put(node.mGroup, ItemIndex.GROUP, node, 0);
+            }
+            node.mChildren.reindex(items);
+        }
+        mFooters.reindex(items);
+        if (!items.isEmpty()) {
+            ModelLog.e("Relocate item index failed, %d items not found", items.size());
+        }
+    }
+
+    /**
+     * 为itemPosition处的item建立索引，分页加载的groupChild不建立索引
+     */
+    private void putItemIndex(int itemPosition, T item) {
+        if (itemPosition < mHeaderCount) {
+            mItemIndex.put(item, ItemIndex.HEADER, null, itemPosition);
+            return;
+        }
+        itemPosition -= mHeaderCount;
+        if (itemPosition < mChildCount) {
+            mItemIndex.put(item, ItemIndex.CHILD, null, itemPosition);
+            return;
+        }
+        itemPosition -= mChildCount;
+        if (itemPosition < mGroupAndGroupChildCount) {
+            int groupPosition = mGroupSizeTree.indexOf(itemPosition);
+            int childOffset = itemPosition - mGroupSizeTree.prefixSum(groupPosition);
+            GroupNode<T> node = mGroups.get(groupPosition);
+            if (childOffset == 0) {
+                mItemIndex.put(item, ItemIndex.GROUP, node, 0);
+            } else if (node.mPages == null) {
+                mItemIndex.put(item, ItemIndex.GROUP_CHILD, node, childOffset - 1);
+            }
+            return;
+        }
+        itemPosition -= mGroupAndGroupChildCount;
+        mItemIndex.put(item, ItemIndex.FOOTER, null, itemPosition);
+    }
+
+    private void setGroup(GroupNode<T> node, T group) {
+        onItemReplaced();
+        node.mViewType = Segment.VIEW_TYPE_UNKNOWN;
+        if (mItemIndex != null) {
+            mItemIndex.remove(node.mGroup);
+            mItemIndex.put(group, ItemIndex.GROUP, node, 0);
+        }
+        node.mGroup = group;
+        markSnapshotDirty(node);
+    }
+
+    /**
+     * group插入或删除之后，更新fromGroupPosition之后所有group的位置
+     */
+    private void updateGroupNodePosition(int fromGroupPosition) {
+        for (int i = fromGroupPosition, size = mGroups.size(); i < size; i++) {
+            mGroups.get(i).mPosition = i;
+        }
+    }
+
+    public final int getItemPosition(T item) {
+        int itemPosition = findItemPosition(item, -1);
+        if (itemPosition != -2) {
+            return itemPosition;
+        }
+        itemPosition = mHeaders.indexOf(item);
+        if (itemPosition != -1) {
+            return itemPosition;
+        }
+        itemPosition = indexOfChild(item);
+        if (itemPosition != -1) {
+            return itemPosition;
+        }
+        itemPosition = indexOfGroupChild(item);
+        if (itemPosition != -1) {
+            return itemPosition;
+        }
+        return indexOfFooter(item);
+    }
+
+    public final void removeItem(int itemPosition) {
+        if (!checkItemPosition(itemPosition)) {
+            return;
+        }
+        if (mHeaderCount > 0 && itemPosition < mHeaderCount) {
+            mHeaders.remove(itemPosition);
+            mHeaderCount--;
+            onSectionItemRangeRemoved(0, itemPosition, 1);
+        } else if (mChildCount > 0 && itemPosition < mHeaderCount + mChildCount) {
+            mChilds.remove(itemPosition - mHeaderCount);
+            mChildCount--;
+            onSectionItemRangeRemoved(1, itemPosition - mHeaderCount, 1);
+        } else if (mGroupCount > 0 && itemPosition < mHeaderCount + mChildCount + getGroupAndGroupChildCount()) {
+            int groupPosition = getGroupPosition(itemPosition);
+            if (groupPosition != -1) {
+                removeGroup(groupPosition);
+                return;
+            } else {
+                int[] groupChildPosition = getGroupChildPosition(itemPosition);
+                removeGroupChild(groupChildPosition[0], groupChildPosition[1]);
+                return;
+            }
+        } else if (mFooterCount > 0 && itemPosition >= getItemCount() - mFooterCount) {
+            int footerPosition = itemPosition - (getItemCount() - mFooterCount);
+            mFooters.remove(footerPosition);
+            mFooterCount--;
+            onSectionItemRangeRemoved(3, footerPosition, 1);
+        } else {
+            ModelLog.w("Remove item failed!");
+            return;
+        }
+        dispatchItemRangeRemoved(itemPosition, 1);
+    }
+
+    public final void swapItem(int sourcePosition, int targetPosition) {
+        int itemCount = getItemCount();
+        if (sourcePosition < 0 || sourcePosition >= itemCount) {
+            ModelLog.e("Invalid sourcePosition %d", sourcePosition);
+            return;
+        } else if (targetPosition < 0 || targetPosition >= itemCount) {
+            ModelLog.e("Invalid targetPosition %d", targetPosition);
+            return;
+        }
+        if (sourcePosition == targetPosition) {
+            return;
+        }
+        T sourceItem = getItem(sourcePosition);
+        T targetItem = getItem(targetPosition);
+        setItem(sourcePosition, targetItem);
+        setItem(targetPosition, sourceItem);
+        if (mItemIndex != null) {
+            // 第一次setItem时targetItem同时出现在两个位置，索引被标记为有重复的item，交换完之后重新建立这两个item的索引
+            mItemIndex.remove(sourceItem);
+            mItemIndex.remove(targetItem);
+            putItemIndex(targetPosition, sourceItem);
+            putItemIndex(sourcePosition, targetItem);
+        }
+        // 交换两个不相邻的item需要两次move：source移动到target，原来的target（此时前移或者后移了一位）再移动到source
+        dispatchItemMoved(sourcePosition, targetPosition);
+        if (targetPosition - sourcePosition > 1) {
+            dispatchItemMoved(targetPosition - 1, sourcePosition);
+        } else if (sourcePosition - targetPosition > 1) {
+            dispatchItemMoved(targetPosition + 1, sourcePosition);
+        }
+    }
+
+    public final void updateItem(int itemPosition, T item) {
+        if (!checkItemPosition(itemPosition)) {
+            return;
+        }
+        setItem(itemPosition, item);
+        dispatchItemRangeChanged(itemPosition, 1);
+    }
+
+    public final void clear() {
+        Arrays.fill(mViewTypeIndexes, null);
+        mHeaders.clear();
+        mChilds.clear();
+        mGroups.clear();
+        mFooters.clear();
+        if (mItemIndex != null) {
+            mItemIndex.clear();
+        }
+        mHeaderCount = 0;
+        mChildCount = 0;
+        mGroupCount = 0;
+        mGroupAndGroupChildCount = 0;
+        mGroupChildCount.clear();
+        mGroupSizeTree.clear();
+        mFooterCount = 0;
+        resetSnapshotGroups();
+        if (mStableIds != null) {
+            mStableIds.clear();
+        }
+        dispatchDataSetChanged();
+    }
+
+    /**
+     * 用builder中的数据整体替换adapter原来的数据，只通知一次刷新。
+     * builder可以在后台线程构建，这个方法需要在主线程调用
+     */
+    public final void setSections(SectionBuilder<T> builder) {
+        if (!checkSectionBuilder(builder)) {
+            return;
+        }
+        builder.mConsumed = true;
+        int oldItemCount = getItemCount();
+        swapSections(builder);
+        int itemCount = getItemCount();
+        if (oldItemCount > 0) {
+            dispatchDataSetChanged();
+        } else if (itemCount > 0) {
+            dispatchItemRangeInserted(0, itemCount);
+        }
+    }
+
+    /**
+     * 延迟加载以及分页的group不能在后台过滤
+     */
+    final boolean checkFilterable() {
+        for (int i = 0; i < mGroupCount; i++) {
+            GroupNode<T> node = mGroups.get(i);
+            if (node.mPages != null) {
+                ModelLog.e("Paged group %d can not be filtered", i);
+                return false;
+            } else if (node.mLoadState != GroupNode.LOAD_STATE_LOADED) {
+                ModelLog.e("Lazy group %d is not loaded, can not be filtered", i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    final boolean checkSectionBuilder(SectionBuilder<T> builder) {
+        if (builder == null) {
+            ModelLog.e("Invalid section builder");
+            return false;
+        } else if (builder.mConsumed) {
+            ModelLog.e("SectionBuilder was already set to adapter");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 用builder中的数据替换当前数据，不通知刷新
+     */
+    final void swapSections(SectionBuilder<T> builder) {
+        Arrays.fill(mViewTypeIndexes, null);
+        mHeaders = builder.mHeaders;
+        mChilds = builder.mChilds;
+        mGroups = builder.mGroups;
+        mFooters = builder.mFooters;
+        mHeaderCount = mHeaders.size();
+        mChildCount = mChilds.size();
+        mGroupCount = mGroups.size();
+        mGroupChildCount = builder.mGroupChildCount;
+        mGroupSizeTree = builder.mGroupSizeTree;
+        mGroupAndGroupChildCount = mGroupSizeTree.sum();
+        mFooterCount = mFooters.size();
+        if (mItemIndex != null) {
+            mItemIndex.clear();
+            attachItemIndex();
+        }
+        resetSnapshotGroups();
+    }
+
+    public final int addHeader(T header) {
+        return addHeader(mHeaderCount, header, null);
+    }
+
+    public final int addHeader(int headerPosition, T header) {
+        return addHeader(headerPosition, header, null);
+    }
+
+    public final int addHeader(List<T> headerList) {
+        return addHeader(mHeaderCount, null, headerList);
+    }
+
+    public final int addHeader(int headerPosition, List<T> headerList) {
+        return addHeader(headerPosition, null, headerList);
+    }
+
+    private final int addHeader(int headerPosition, T header, List<T> headerList) {
+        if (headerPosition < 0) {
+            ModelLog.e("Invalid header position %d", headerPosition);
+            return -1;
+        } else if (header == null && (headerList == null || headerList.isEmpty())) {
+            ModelLog.e("Invalid header parameter");
+            return -1;
+        }
+        if (headerPosition > mHeaderCount) {
+            headerPosition = mHeaderCount;
+        }
+        int itemPosition = headerPosition;
+        int itemAddSize;
+        if (header != null) {
+            mHeaders.add(headerPosition, header);
+            itemAddSize = 1;
+        } else {
+            mHeaders.addAll(headerPosition, headerList);
+            itemAddSize = headerList.size();
+        }
+        ModelLog.v("Notify item from %d, count is %d", itemPosition, itemAddSize);
+        mHeaderCount += itemAddSize;
+        onSectionItemRangeInserted(0, headerPosition, itemAddSize);
+        dispatchItemRangeInserted(itemPosition, itemAddSize);
+        return headerPosition;
+    }
+
+    public final void removeHeader(T header) {
+        int itemPosition = getHeaderPosition(header);
+        if (itemPosition == -1) {
+            ModelLog.e("Remove header fiiled for not finding the header position");
+            return;
+        }
+        mHeaders.remove(itemPosition);
+        mHeaderCount--;
+        onSectionItemRangeRemoved(0, itemPosition, 1);
+        dispatchItemRangeRemoved(itemPosition, 1);
+    }
+
+    /**
+     * 一次遍历删除所有的headers，每段连续删除的item只通知一次
+     */
+    public final void removeHeaders(List<T> headers) {
+        int removeCount = removeSectionItems(0, mHeaders, 0, headers);
+        mHeaderCount -= removeCount;
+    }
+
+    public final void removeHeader(int headerPosition) {
+        removeHeader(headerPosition, 1);
+    }
+
+    public final void clearHeader() {
+        removeHeader(0, mHeaderCount);
+    }
+
+    public final void clearHeader(int headerBeginPosition) {
+        removeHeader(headerBeginPosition, mHeaderCount - headerBeginPosition);
+    }
+
+    public final void removeHeader(int headerBeginPosition, int removeCount) {
+        if (!checkHeaderPosition(headerBeginPosition)) {
+            return;
+        } else if (removeCount <= 0) {
+            ModelLog.e("Invalid header removeCount %d", removeCount);
+            return;
+        }
+        int itemBeginPosition = headerBeginPosition;
+        int itemEndPosition = headerBeginPosition + removeCount;
+        if (itemEndPosition > mHeaderCount) {
+            itemEndPosition = mHeaderCount;
+            int oldRemoveCount = removeCount;
+            removeCount = itemEndPosition - itemBeginPosition;
+            ModelLog.i("Reset removeCount from %d to %d", oldRemoveCount, removeCount);
+        }
+        mHeaders.removeRange(itemBeginPosition, itemEndPosition);
+        dispatchItemRangeRemoved(itemBeginPosition, removeCount);
+        mHeaderCount -= removeCount;
+        onSectionItemRangeRemoved(0, headerBeginPosition, removeCount);
+    }
+
+    public final List<T> getHeaders() {
+        if (mHeaderCount <= 0 || getItemCount() <= 0) {
+            ModelLog.w("No header items");
+            return null;
+        }
+        return mHeaders.subList(0, mHeaderCount);
+    }
+
+    public final T getHeader(int headerPosition) {
+        if (!checkHeaderPosition(headerPosition)) {
+            return null;
+        }
+        return mHeaders.get(headerPosition);
+    }
+
+
+    public final void updateHeader(int headerPosition, T header) {
+        if (!checkHeaderPosition(headerPosition)) {
+            return;
+        }
+        mHeaders.set(headerPosition, header);
+        onItemReplaced();
+        onSectionItemChanged(0, headerPosition);
+        dispatchItemRangeChanged(headerPosition, 1);
+    }
+
+    public final void notifyHeaderChanged(int headerPosition) {
+        notifyHeaderChanged(headerPosition, null);
+    }
+
+    /**
+     * @param payload 传给onBindViewHolder(holder, position, payloads)，可以只做局部刷新
+     */
+    public final void notifyHeaderChanged(int headerPosition, Object payload) {
+        if (!checkHeaderPosition(headerPosition)) {
+            return;
+        }
+        dispatchItemRangeChanged(headerPosition, 1, payload);
+    }
+
+    /**
+     * 只发出一条范围刷新通知
+     */
+    public final void notifyHeaderRangeChanged(int headerBeginPosition, int changeCount, Object payload) {
+        if (!checkRange("header", headerBeginPosition, changeCount, mHeaderCount)) {
+            return;
+        }
+        dispatchItemRangeChanged(headerBeginPosition, changeCount, payload);
+    }
+
+    public final int getHeaderCount() {
+        return mHeaderCount;
+    }
+
+    private boolean checkHeaderPosition(int headerPosition) {
+        if (headerPosition < 0) {
+            ModelLog.w("Invalid header position %d", headerPosition);
+            return false;
+        } else if (headerPosition >= mHeaderCount) {
+            ModelLog.w("Invalid header position %d, header size is %d", headerPosition, mHeaderCount);
+            return false;
+        }
+        return true;
+    }
+
+    public final int getHeaderPosition(int itemPosition) {
+        if (!checkItemPosition(itemPosition) || itemPosition >= mHeaderCount) {
+            return -1;
+        }
+        return itemPosition;
+    }
+
+    public final int getHeaderPosition(T header) {
+        int itemPosition = findItemPosition(header, ItemIndex.HEADER);
+        if (itemPosition != -2) {
+            return itemPosition;
+        }
+        return mHeaders.indexOf(header);
+    }
+
+    public final int convertHeaderPosition(int headerPosition) {
+        if (!checkHeaderPosition(headerPosition)) {
+            return -1;
+        }
+        return headerPosition;
+    }
+
+    public final int addChild(T child) {
+        return addChild(mChildCount, child, null);
+    }
+
+    public final int addChild(int childPosition, T child) {
+        return addChild(childPosition, child, null);
+    }
+
+    public final int addChild(List<T> childList) {
+        return addChild(mChildCount, null, childList);
+    }
+
+    public final int addChild(int childPosition, List<T> childList) {
+        return addChild(childPosition, null, childList);
+    }
+
+    public final int addChild(int childPosition, T child, List<T> childList) {
+        if (childPosition < 0) {
+            ModelLog.e("Invalid child position %d", childPosition);
+            return -1;
+        } else if (null == child && (null == childList || childList.isEmpty())) {
+            ModelLog.e("Invalid child parameter");
+            return -1;
+        }
+        if (childPosition > mChildCount) {
+            childPosition = mChildCount;
+        }
+        int itemPosition = mHeaderCount + childPosition;
+        int addSize;
+        if (child != null) {
+            mChilds.add(childPosition, child);
+            addSize = 1;
+        } else {
+            mChilds.addAll(childPosition, childList);
+            addSize = childList.size();
+        }
+        ModelLog.v("Notify item from %d, count is %d", itemPosition, addSize);
+        mChildCount += addSize;
+        onSectionItemRangeInserted(1, childPosition, addSize);
+        dispatchItemRangeInserted(itemPosition, addSize);
+        return childPosition;
+    }
+
+    public final void removeChild(int childPosition) {
+        removeChild(childPosition, 1);
+    }
+
+    public final void removeChild(T child) {
+        int itemPosition = indexOfChild(child);
+        if (itemPosition == -1) {
+            ModelLog.e("Remove the child failed for not finding the child position");
+            return;
+        }
+        mChilds.remove(itemPosition - mHeaderCount);
+        dispatchItemRangeRemoved(itemPosition, 1);
+        mChildCount--;
+        onSectionItemRangeRemoved(1, itemPosition - mHeaderCount, 1);
+    }
+
+    /**
+     * 一次遍历删除所有的childs，每段连续删除的item只通知一次
+     */
+    public final void removeChilds(List<T> childs) {
+        int removeCount = removeSectionItems(1, mChilds, mHeaderCount, childs);
+        mChildCount -= removeCount;
+    }
+
+    public final void clearChild(int childBeginPosition) {
+        removeChild(childBeginPosition, mChildCount - childBeginPosition);
+    }
+
+    public final void clearChild() {
+        removeChild(0, mChildCount);
+    }
+
+    public final void removeChild(int childBeginPosition, int removeCount) {
+        if (!checkChildPosition(childBeginPosition)) {
+            return;
+        } else if (removeCount <= 0) {
+            ModelLog.e("Invalid child removeCount %d", removeCount);
+            return;
+        }
+        int itemBeginPosition = convertChildPosition(childBeginPosition);
+        int headerChildCount = mHeaderCount + mChildCount;
+        int itemEndPosition = itemBeginPosition + removeCount;
+        if (itemEndPosition > headerChildCount) {
+            itemEndPosition = headerChildCount;
+            int oldRemoveCount = removeCount;
+            removeCount = itemEndPosition - itemBeginPosition;
+            ModelLog.i("Reset child removeCount from %d to %d", oldRemoveCount, removeCount);
+        }
+        mChilds.removeRange(childBeginPosition, childBeginPosition + removeCount);
+        mChildCount -= removeCount;
+        onSectionItemRangeRemoved(1, childBeginPosition, removeCount);
+        dispatchItemRangeRemoved(itemBeginPosition, removeCount);
+    }
+
+    public final List<T> getChilds() {
+        if (mChildCount <= 0 || getItemCount() <= 0) {
+            ModelLog.w("No child items");
+            return null;
+        }
+        return mChilds.subList(0, mChildCount);
+    }
+
+    public final T getChild(int childPosition) {
+        if (!checkChildPosition(childPosition)) {
+            return null;
+        }
+        return mChilds.get(childPosition);
+    }
+
+
+    public final void updateChild(int childPosition, T child) {
+        int itemPosition = convertChildPosition(childPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        mChilds.set(childPosition, child);
+        onItemReplaced();
+        onSectionItemChanged(1, childPosition);
+        dispatchItemRangeChanged(itemPosition, 1);
+    }
+
+
+    public final void notifyChildChanged(int childPosition) {
+        notifyChildChanged(childPosition, null);
+    }
+
+    public final void notifyChildChanged(int childPosition, Object payload) {
+        int itemPosition = convertChildPosition(childPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        dispatchItemRangeChanged(itemPosition, 1, payload);
+    }
+
+    public final void notifyChildRangeChanged(int childBeginPosition, int changeCount, Object payload) {
+        if (!checkRange("child", childBeginPosition, changeCount, mChildCount)) {
+            return;
+        }
+        dispatchItemRangeChanged(mHeaderCount + childBeginPosition, changeCount, payload);
+    }
+
+    public final int getChildCount() {
+        return mChildCount;
+    }
+
+    private boolean checkChildPosition(int childPosition) {
+        if (childPosition < 0) {
+            ModelLog.w("Invalid child position %d", childPosition);
+            return false;
+        } else if (childPosition >= mChildCount) {
+            ModelLog.w("invalid child position %d, child size is %d", childPosition, mChildCount);
+            return false;
+        }
+        return true;
+    }
+
+    public final int getChildPosition(int itemPosition) {
+        if (!checkItemPosition(itemPosition)) {
+            ModelLog.e("invalid adapterPosition %d", itemPosition);
+            return -1;
+        } else if (mChildCount <= 0 || itemPosition >= mHeaderCount + mChildCount) {
+            return -1;
+        }
+        return itemPosition - mHeaderCount;
+    }
+
+    public final int getChildPosition(T child) {
+        int itemPosition = indexOfChild(child);
+        if (itemPosition == -1) {
+            return -1;
+        }
+        return itemPosition - mHeaderCount;
+    }
+
+    public final int convertChildPosition(int childPosition) {
+        if (!checkChildPosition(childPosition)) {
+            return -1;
+        }
+        return mHeaderCount + childPosition;
+    }
+
+    public final int indexOfChild(T child) {
+        if (mChildCount <= 0) {
+            return -1;
+        }
+        int itemPosition = findItemPosition(child, ItemIndex.CHILD);
+        if (itemPosition != -2) {
+            return itemPosition;
+        }
+        int childPosition = mChilds.indexOf(child);
+        return childPosition == -1 ? -1 : mHeaderCount + childPosition;
+    }
+
+    public final int addGroup(T group) {
+        return addGroup(mGroupCount, group);
+    }
+
+    public final int addGroup(int groupPosition, T group) {
+        if (groupPosition < 0) {
+            ModelLog.e("Invalid group position %d", groupPosition);
+            return -1;
+        } else if (indexOfGroup(group) != -1) {
+            ModelLog.e("Group is alread exist! You must use a different object to create a new group");
+            return -1;
+        }
+        if (groupPosition > mGroupCount) {
+            ModelLog.w("Reset group position from %d to %d", groupPosition, mGroupCount);
+            groupPosition = mGroupCount;
+        }
+        int itemPosition = mHeaderCount + mChildCount + mGroupSizeTree.prefixSum(groupPosition);
+        GroupNode<T> node = new GroupNode<>(group);
+        mGroups.add(groupPosition, node);
+        updateGroupNodePosition(groupPosition);
+        if (mSnapshotGroups != null) {
+            ensureSnapshotGroupsNotShared();
+            mSnapshotGroups.add(groupPosition, null);
+            markSnapshotDirty(node);
+        }
+        if (mItemIndex != null) {
+            mItemIndex.put(group, ItemIndex.GROUP, node, 0);
+            node.mChildren.setItemIndex(mItemIndex);
+        }
+        mGroupCount += 1;
+        mGroupAndGroupChildCount += 1;
+        mGroupChildCount.add(groupPosition, 0);
+        mGroupSizeTree.insert(groupPosition, 1);
+        onSectionItemRangeInserted(2, groupPosition, 1);
+        dispatchItemRangeInserted(itemPosition, 1);
+        return groupPosition;
+    }
+
+    public final void removeGroup(T group) {
+        removeGroup(getGroupPosition(group));
+    }
+
+    /**
+     * 一次遍历删除所有的groups（以及它们的groupChild），每段连续删除的item只通知一次
+     */
+    public final void removeGroups(List<T> groups) {
+        if (groups == null || groups.isEmpty() || mGroupCount == 0) {
+            return;
+        }
+        HashMap<T, Integer> counts = countItems(groups);
+        boolean[] removed = new boolean[mGroupCount];
+        IntArray runs = new IntArray();
+        int itemOffset = 0;
+        int write = 0;
+        int removeItemCount = 0;
+        for (int read = 0; read < mGroupCount; read++) {
+            GroupNode<T> node = mGroups.get(read);
+            int groupItemCount = node.size();
+            if (Segment.takeCount(counts, node.mGroup)) {
+                removed[read] = true;
+                removeItemCount += groupItemCount;
+                Segment.addRun(runs, itemOffset, groupItemCount);
+                if (mItemIndex != null) {
+                    mItemIndex.remove(node.mGroup);
+                    node.mChildren.clear();
+                }
+            } else {
+                if (write != read) {
+                    mGroups.set(write, node);
+                    node.mPosition = write;
+                    mGroupChildCount.set(write, mGroupChildCount.get(read));
+                    if (mSnapshotGroups != null) {
+                        ensureSnapshotGroupsNotShared();
+                        mSnapshotGroups.set(write, mSnapshotGroups.get(read));
+                    }
+                }
+                write++;
+            }
+            itemOffset += groupItemCount;
+        }
+        if (write == mGroupCount) {
+            return;
+        }
+        mGroups.subList(write, mGroupCount).clear();
+        mGroupChildCount.removeRange(write, mGroupCount);
+        if (mSnapshotGroups != null) {
+            ensureSnapshotGroupsNotShared();
+            mSnapshotGroups.subList(write, mGroupCount).clear();
+        }
+        mGroupSizeTree.removeAll(removed);
+        mGroupCount = write;
+        mGroupAndGroupChildCount -= removeItemCount;
+        mViewTypeIndexes[2] = null;
+        dispatchRemovedRuns(mHeaderCount + mChildCount, runs);
+    }
+
+    /**
+     * 删除所有group，只通知一次
+     */
+    public final void removeAllGroup() {
+        if (mGroupCount == 0) {
+            return;
+        }
+        if (mItemIndex != null) {
+            for (int i = 0; i < mGroupCount; i++) {
+                GroupNode<T> node = mGroups.get(i);
+                mItemIndex.remove(node.mGroup);
+                node.mChildren.clear();
+            }
+        }
+        int itemBeginPosition = mHeaderCount + mChildCount;
+        int removeCount = mGroupAndGroupChildCount;
+        mGroups.clear();
+        mGroupCount = 0;
+        mGroupAndGroupChildCount = 0;
+        mGroupChildCount.clear();
+        mGroupSizeTree.clear();
+        if (mSnapshotGroups != null) {
+            mSnapshotGroups = new ArrayList<>();
+            mSnapshotGroupsShared = false;
+        }
+        mSnapshotDirtyGroups.clear();
+        mViewTypeIndexes[2] = null;
+        dispatchItemRangeRemoved(itemBeginPosition, removeCount);
+    }
+
+    public final void removeGroup(int groupPosition) {
+        int itemPosition = convertGroupPosition(groupPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        int groupItemCount = mGroupSizeTree.get(groupPosition);
+        GroupNode<T> node = mGroups.remove(groupPosition);
+        updateGroupNodePosition(groupPosition);
+        if (mSnapshotGroups != null) {
+            ensureSnapshotGroupsNotShared();
+            mSnapshotGroups.remove(groupPosition);
+        }
+        if (mItemIndex != null) {
+            mItemIndex.remove(node.mGroup);
+            node.mChildren.clear();
+        }
+        mGroupCount--;
+        mGroupAndGroupChildCount -= groupItemCount;
+        mGroupChildCount.remove(groupPosition);
+        mGroupSizeTree.remove(groupPosition);
+        onSectionItemRangeRemoved(2, groupPosition, 1);
+        dispatchItemRangeRemoved(itemPosition, groupItemCount);
+    }
+
+    public final List<T> getGroups() {
+        if (mGroupCount <= 0) {
+            return null;
+        }
+        List<T> groups = new ArrayList<>(mGroupCount);
+        for (int i = 0; i < mGroupCount; i++) {
+            groups.add(mGroups.get(i).mGroup);
+        }
+        return groups;
+    }
+
+
+    public final T getGroup(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return null;
+        }
+        return mGroups.get(groupPosition).mGroup;
+    }
+
+    public final void updateGroup(int groupPosition, T group) {
+        int itemPosition = convertGroupPosition(groupPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        setGroup(mGroups.get(groupPosition), group);
+        onSectionItemChanged(2, groupPosition);
+        dispatchItemRangeChanged(itemPosition, 1);
+    }
+
+    public final int getGroupPosition(int itemPosition) {
+        if (!checkItemPosition(itemPosition) || itemPosition < mHeaderCount + mChildCount) {
+            ModelLog.e("Invalid itemPosition %d", itemPosition);
+            return -1;
+        }
+        int offset = itemPosition - mHeaderCount - mChildCount;
+        int groupPosition = mGroupSizeTree.indexOf(offset);
+        if (groupPosition == -1 || mGroupSizeTree.prefixSum(groupPosition) != offset) {
+            return -1;
+        }
+        return groupPosition;
+    }
+
+    public final int getGroupPosition(T group) {
+        return getGroupPosition(indexOfGroup(group));
+    }
+
+    public final int convertGroupPosition(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            ModelLog.e("Invalid group position %d", groupPosition);
+            return -1;
+        }
+        return mHeaderCount + mChildCount + mGroupSizeTree.prefixSum(groupPosition);
+    }
+
+    public final int indexOfGroup(T group) {
+        if (group == null) {
+            return -1;
+        }
+        int itemPosition = findItemPosition(group, ItemIndex.GROUP);
+        if (itemPosition != -2) {
+            return itemPosition;
+        }
+        for (int i = 0; i < mGroupCount; i++) {
+            if (mGroups.get(i).mGroup.equals(group)) {
+                return convertGroupPosition(i);
+            }
+        }
+        return -1;
+    }
+
+    public final int notifyGroupChanged(int groupPosition) {
+        return notifyGroupChanged(groupPosition, true);
+    }
+
+    public final int notifyGroupChanged(int groupPosition, boolean notNotifyGroup) {
+        return notifyGroupChanged(groupPosition, notNotifyGroup, null);
+    }
+
+    /**
+     * group以及展开的groupChild只发出一条范围刷新通知
+     *
+     * @param notNotifyGroup true时只刷新groupChild
+     * @param payload        传给onBindViewHolder(holder, position, payloads)，可以只做局部刷新
+     */
+    public final int notifyGroupChanged(int groupPosition, boolean notNotifyGroup, Object payload) {
+        if (!checkGroupPosition(groupPosition)) {
+            ModelLog.e("Invalid group position %d", groupPosition);
+            return -1;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        int itemPosition = convertGroupPosition(groupPosition);
+        int changeCount = node.size();
+        if (notNotifyGroup) {
+            itemPosition++;
+            changeCount--;
+        }
+        if (changeCount > 0) {
+            dispatchItemRangeChanged(itemPosition, changeCount, payload);
+        }
+        return 0;
+    }
+
+    public final int getGroupCount() {
+        return mGroupCount;
+    }
+
+    private boolean checkGroupPosition(int groupPosition) {
+        if (groupPosition < 0) {
+            ModelLog.w("Invalid group position %d", groupPosition);
+            return false;
+        } else if (groupPosition >= mGroupCount) {
+            ModelLog.w("Invalid group position %d, group size is %d", groupPosition, mGroupCount);
+            return false;
+        }
+        return true;
+    }
+
+    public final int[] addGroupChild(int groupPosition, T groupChild) {
+        if (!checkGroupPosition(groupPosition)) {
+            return new int[]{-1, -1};
+        }
+        return addGroupChild(groupPosition, mGroupChildCount.get(groupPosition), groupChild, null);
+    }
+
+    public final int[] addGroupChild(int groupPosition, int groupChildPosition, T groupChild) {
+        return addGroupChild(groupPosition, groupChildPosition, groupChild, null);
+    }
+
+    public final int[] addGroupChild(int groupPosition, List<T> childList) {
+        if (!checkGroupPosition(groupPosition)) {
+            return new int[]{-1, -1};
+        }
+        return addGroupChild(groupPosition, mGroupChildCount.get(groupPosition), null, childList);
+    }
+
+    public final int[] addGroupChild(int groupPosition,
+                                     int groupChildPosition,
+                                     T groupChild,
+                                     List<T> groupChildList) {
+        if (!checkGroupPosition(groupPosition)) {
+            return new int[]{-1, -1};
+        } else if (groupChild == null && (groupChildList == null || groupChildList.isEmpty())) {
+            ModelLog.e("Invalid group child mList");
+            return new int[]{-1, -1};
+        } else if (groupChildPosition < 0) {
+            ModelLog.e("Invalid child position %d", groupChildPosition);
+            return new int[]{-1, -1};
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mPages != null) {
+            ModelLog.e("Paged group, use invalidatePagedGroup to change its group childs");
+            return new int[]{-1, -1};
+        }
+        final int oldGroupChildCount = mGroupChildCount.get(groupPosition);
+        if (groupChildPosition > oldGroupChildCount) {
+            groupChildPosition = oldGroupChildCount;
+        }
+        int itemPosition = mHeaderCount + mChildCount + mGroupSizeTree.prefixSum(groupPosition) + 1 + groupChildPosition;
+        int addSize;
+        if (groupChild != null) {
+            node.mChildren.add(groupChildPosition, groupChild);
+            addSize = 1;
+        } else {
+            node.mChildren.addAll(groupChildPosition, groupChildList);
+            addSize = groupChildList.size();
+        }
+        mGroupChildCount.set(groupPosition, oldGroupChildCount + addSize);
+        markSnapshotDirty(node);
+        if (node.mExpanded) {
+            mGroupSizeTree.add(groupPosition, addSize);
+            mGroupAndGroupChildCount += addSize;
+            dispatchItemRangeInserted(itemPosition, addSize);
+        }
+        return new int[]{groupPosition, groupChildPosition};
+    }
+
+    public final void removeGroupChild(int groupPosition, int groupChildPosition) {
+        removeGroupChild(groupPosition, groupChildPosition, 1);
+    }
+
+    public final void clearGroupChild(int groupPosition) {
+        clearGroupChild(groupPosition, 0);
+    }
+
+    public final void clearGroupChild(int groupPosition, int groupChildBeginPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return;
+        }
+        removeGroupChild(groupPosition,
+                groupChildBeginPosition,
+                mGroupChildCount.get(groupPosition) - groupChildBeginPosition);
+    }
+
+    private final void removeGroupChild(int groupPosition,
+                                        int groupChildBeingPosition,
+                                        int removeCount) {
+        if (!checkGroupChildPosition(groupPosition, groupChildBeingPosition)) {
+            return;
+        }
+        if (removeCount <= 0) {
+            ModelLog.e("Invalid group remove count %d", removeCount);
+            return;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mPages != null) {
+            ModelLog.e("Paged group, use invalidatePagedGroup to change its group childs");
+            return;
+        }
+        final int groupChildCount = mGroupChildCount.get(groupPosition);
+        int groupChildEnd = groupChildBeingPosition + removeCount;
+        if (groupChildEnd > groupChildCount) {
+            int oldRemoveCount = removeCount;
+            removeCount = groupChildCount - groupChildBeingPosition;
+            groupChildEnd = groupChildCount;
+            ModelLog.i("Reset group removeCount from %d to %d", oldRemoveCount, removeCount);
+        }
+        ModelLog.d("groupPosition=%d, childStarPosition=%d, count=%d, childEnd=%d",
+                groupPosition,
+                groupChildBeingPosition,
+                removeCount,
+                groupChildEnd);
+        int itemPosition = convertGroupPosition(groupPosition);
+        int itemBeginPosition = itemPosition + groupChildBeingPosition + 1;
+        node.mChildren.removeRange(groupChildBeingPosition, groupChildEnd);
+        markSnapshotDirty(node);
+        mGroupChildCount.set(groupPosition, groupChildCount - removeCount);
+        if (node.mExpanded) {
+            mGroupSizeTree.add(groupPosition, -removeCount);
+            mGroupAndGroupChildCount -= removeCount;
+            dispatchItemRangeRemoved(itemBeginPosition, removeCount);
+        }
+    }
+
+    public final List<T> getGroupChilds(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return null;
+        }
+        int groupChildCount = mGroupChildCount.get(groupPosition);
+        if (groupChildCount <= 0) {
+            return null;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mPages != null) {
+            ModelLog.w("Paged group, group childs are not all in memory");
+            return null;
+        }
+        return node.mChildren.subList(0, groupChildCount);
+    }
+
+    public final T getGroupChild(int groupPosition, int groupChildPosition) {
+        if (!checkGroupChildPosition(groupPosition, groupChildPosition)) {
+            return null;
+        }
+        return mGroups.get(groupPosition).getChild(groupChildPosition);
+    }
+
+
+    public final void updateGroupChild(int groupPosition, int groupChildPosition, T groupChild) {
+        if (!checkGroupChildPosition(groupPosition, groupChildPosition)) {
+            return;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mPages != null) {
+            if (!node.mPages.set(groupChildPosition, groupChild)) {
+                ModelLog.w("Group child page not loaded, ignore update");
+                return;
+            }
+        } else {
+            node.mChildren.set(groupChildPosition, groupChild);
+            onItemReplaced();
+            markSnapshotDirty(node);
+        }
+        if (node.mExpanded) {
+            dispatchItemRangeChanged(convertGroupPosition(groupPosition) + 1 + groupChildPosition, 1);
+        }
+    }
+
+    public final void updateGroupChild(int groupPosition, int groupChildPosition) {
+        int itemPosition = convertGroupChildPosition(groupPosition, groupChildPosition);
+        if (itemPosition != -1) {
+            dispatchItemRangeChanged(itemPosition, 1);
+        }
+    }
+
+    public final int getGroupChildCount(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return 0;
+        }
+        return mGroupChildCount.get(groupPosition);
+    }
+
+    /**
+     * @return 所有group以及展开的group下groupChild的个数
+     */
+    public final int getGroupAndGroupChildCount() {
+        return mGroupAndGroupChildCount;
+    }
+
+    public final boolean isGroupExpanded(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return false;
+        }
+        return mGroups.get(groupPosition).mExpanded;
+    }
+
+    /**
+     * 展开group，groupChild重新显示出来
+     */
+    public final void expandGroup(int groupPosition) {
+        setGroupExpanded(groupPosition, true);
+    }
+
+    /**
+     * 收起group，groupChild仍然保存在adapter里面，但是不显示，也不计入getItemCount
+     */
+    public final void collapseGroup(int groupPosition) {
+        setGroupExpanded(groupPosition, false);
+    }
+
+    /**
+     * @return group当前是否展开
+     */
+    public final boolean toggleGroup(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return false;
+        }
+        boolean expanded = !mGroups.get(groupPosition).mExpanded;
+        setGroupExpanded(groupPosition, expanded);
+        return expanded;
+    }
+
+    public final void expandAll() {
+        beginBatch();
+        for (int i = mGroupCount - 1; i >= 0; i--) {
+            setGroupExpanded(i, true);
+        }
+        endBatch();
+    }
+
+    public final void collapseAll() {
+        beginBatch();
+        for (int i = mGroupCount - 1; i >= 0; i--) {
+            setGroupExpanded(i, false);
+        }
+        endBatch();
+    }
+
+    /**
+     * 设置之后可以使用addSortedGroup、updateSortedGroup，插入位置通过二分查找得到。
+     * 不会对已有的group重新排序，已有的group需要已经按comparator排好序
+     */
+    public final void setGroupComparator(Comparator<T> comparator) {
+        mGroupComparator = comparator;
+    }
+
+    /**
+     * 设置之后可以使用addSortedGroupChild、updateSortedGroupChild，要求同{@link #setGroupComparator(Comparator)}
+     */
+    public final void setGroupChildComparator(Comparator<T> comparator) {
+        mGroupChildComparator = comparator;
+    }
+
+    /**
+     * 插入到所有不大于group的group后面
+     *
+     * @return group position，失败返回-1
+     */
+    public final int addSortedGroup(T group) {
+        if (mGroupComparator == null) {
+            ModelLog.e("No group comparator, call setGroupComparator first");
+            return -1;
+        }
+        return addGroup(findSortedGroupPosition(group, 0, -1), group);
+    }
+
+    /**
+     * 先对groups排序，再从前往后依次二分查找插入位置，插入到同一位置的group只通知一次
+     */
+    public final void addSortedGroups(List<T> groups) {
+        if (mGroupComparator == null) {
+            ModelLog.e("No group comparator, call setGroupComparator first");
+            return;
+        } else if (groups == null || groups.isEmpty()) {
+            return;
+        }
+        List<T> sortedGroups = new ArrayList<>(groups);
+        Collections.sort(sortedGroups, mGroupComparator);
+        beginBatch();
+        int fromPosition = 0;
+        for (int i = 0, size = sortedGroups.size(); i < size; i++) {
+            T group = sortedGroups.get(i);
+            int groupPosition = addGroup(findSortedGroupPosition(group, fromPosition, -1), group);
+            if (groupPosition != -1) {
+                fromPosition = groupPosition + 1;
+            }
+        }
+        endBatch();
+    }
+
+    /**
+     * 替换group，顺序改变时把group连同groupChild移动到新的位置
+     *
+     * @return 新的group position，失败返回-1
+     */
+    public final int updateSortedGroup(int groupPosition, T group) {
+        if (mGroupComparator == null) {
+            ModelLog.e("No group comparator, call setGroupComparator first");
+            return -1;
+        } else if (!checkGroupPosition(groupPosition)) {
+            return -1;
+        }
+        updateGroup(groupPosition, group);
+        if (isSortedAt(groupPosition)) {
+            return groupPosition;
+        }
+        int toGroupPosition = findSortedGroupPosition(group, 0, groupPosition);
+        moveGroupNode(groupPosition, toGroupPosition);
+        return toGroupPosition;
+    }
+
+    /**
+     * @return groupChild插入的位置{groupPosition, groupChildPosition}，失败返回{-1, -1}
+     */
+    public final int[] addSortedGroupChild(int groupPosition, T groupChild) {
+        if (mGroupChildComparator == null) {
+            ModelLog.e("No group child comparator, call setGroupChildComparator first");
+            return new int[]{-1, -1};
+        } else if (!checkGroupPosition(groupPosition)) {
+            return new int[]{-1, -1};
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        return addGroupChild(groupPosition, findSortedGroupChildPosition(node, groupChild, 0, -1), groupChild);
+    }
+
+    /**
+     * 先对groupChilds排序，再从前往后依次二分查找插入位置，插入到同一位置的groupChild只通知一次
+     */
+    public final void addSortedGroupChilds(int groupPosition, List<T> groupChilds) {
+        if (mGroupChildComparator == null) {
+            ModelLog.e("No group child comparator, call setGroupChildComparator first");
+            return;
+        } else if (!checkGroupPosition(groupPosition) || groupChilds == null || groupChilds.isEmpty()) {
+            return;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        List<T> sortedGroupChilds = new ArrayList<>(groupChilds);
+        Collections.sort(sortedGroupChilds, mGroupChildComparator);
+        beginBatch();
+        int fromPosition = 0;
+        for (int i = 0, size = sortedGroupChilds.size(); i < size; i++) {
+            T groupChild = sortedGroupChilds.get(i);
+            int[] positions = addGroupChild(groupPosition,
+                    findSortedGroupChildPosition(node, groupChild, fromPosition, -1),
+                    groupChild);
+            if (positions[1] == -1) {
+                break;
+            }
+            fromPosition = positions[1] + 1;
+        }
+        endBatch();
+    }
+
+    /**
+     * 替换groupChild，顺序改变时移动到新的位置
+     *
+     * @return 新的groupChild position，失败返回-1
+     */
+    public final int updateSortedGroupChild(int groupPosition, int groupChildPosition, T groupChild) {
+        if (mGroupChildComparator == null) {
+            ModelLog.e("No group child comparator, call setGroupChildComparator first");
+            return -1;
+        } else if (!checkGroupChildPosition(groupPosition, groupChildPosition)) {
+            return -1;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mPages != null) {
+            ModelLog.e("Paged group, use invalidatePagedGroup to change its group childs");
+            return -1;
+        }
+        updateGroupChild(groupPosition, groupChildPosition, groupChild);
+        Segment<T> children = node.mChildren;
+        if ((groupChildPosition == 0
+                || mGroupChildComparator.compare(children.get(groupChildPosition - 1), groupChild) <= 0)
+                && (groupChildPosition == children.size() - 1
+                || mGroupChildComparator.compare(groupChild, children.get(groupChildPosition + 1)) <= 0)) {
+            return groupChildPosition;
+        }
+        int toGroupChildPosition = findSortedGroupChildPosition(node, groupChild, 0, groupChildPosition);
+        moveGroupChild(groupPosition, groupChildPosition, groupPosition, toGroupChildPosition);
+        return toGroupChildPosition;
+    }
+
+    /**
+     * group与前后相邻的group是否有序
+     */
+    private boolean isSortedAt(int groupPosition) {
+        T group = mGroups.get(groupPosition).mGroup;
+        return (groupPosition == 0
+                || mGroupComparator.compare(mGroups.get(groupPosition - 1).mGroup, group) <= 0)
+                && (groupPosition == mGroupCount - 1
+                || mGroupComparator.compare(group, mGroups.get(groupPosition + 1).mGroup) <= 0);
+    }
+
+    /**
+     * 在[fromPosition, mGroupCount)里面二分查找第一个大于group的位置
+     *
+     * @param excludePosition 查找时当作不存在的group（group自身），不需要时传-1
+     * @return 去掉excludePosition之后的插入位置
+     */
+    private int findSortedGroupPosition(T group, int fromPosition, int excludePosition) {
+        int low = fromPosition;
+        int high = excludePosition == -1 ? mGroupCount : mGroupCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int index = excludePosition != -1 && mid >= excludePosition ? mid + 1 : mid;
+            if (mGroupComparator.compare(mGroups.get(index).mGroup, group) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 同{@link #findSortedGroupPosition(Object, int, int)}，在node的groupChild里面查找
+     */
+    private int findSortedGroupChildPosition(GroupNode<T> node, T groupChild, int fromPosition, int excludePosition) {
+        Segment<T> children = node.mChildren;
+        int low = fromPosition;
+        int high = excludePosition == -1 ? children.size() : children.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int index = excludePosition != -1 && mid >= excludePosition ? mid + 1 : mid;
+            if (mGroupChildComparator.compare(children.get(index), groupChild) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 把group连同它的groupChild整体移动到toGroupPosition，中间的group依次平移一位。
+     * 只更新[from, to]之间的group，代价是O(|from - to| * logG)，拖动排序时相邻移动为O(logG)。
+     * group占用的item不超过{@value #MAX_MOVED_ITEM_COUNT}个时每个item各通知一次notifyItemMoved，
+     * 超过时（展开的group有较多groupChild）通知一次范围删除加一次范围插入
+     */
+    public final void moveGroup(int fromGroupPosition, int toGroupPosition) {
+        if (!checkGroupPosition(fromGroupPosition) || !checkGroupPosition(toGroupPosition)) {
+            return;
+        }
+        moveGroupNode(fromGroupPosition, toGroupPosition);
+    }
+
+    /**
+     * 把groupChild移动到toGroupPosition的toGroupChildPosition（移动之后的位置）。
+     * 两个group都展开时通知notifyItemMoved，只有一个展开时通知插入或者删除
+     */
+    public final void moveGroupChild(int fromGroupPosition,
+                                     int fromGroupChildPosition,
+                                     int toGroupPosition,
+                                     int toGroupChildPosition) {
+        if (!checkGroupChildPosition(fromGroupPosition, fromGroupChildPosition)
+                || !checkGroupPosition(toGroupPosition)) {
+            return;
+        }
+        GroupNode<T> fromNode = mGroups.get(fromGroupPosition);
+        GroupNode<T> toNode = mGroups.get(toGroupPosition);
+        if (fromNode.mPages != null || toNode.mPages != null) {
+            ModelLog.e("Paged group, use invalidatePagedGroup to change its group childs");
+            return;
+        }
+        int maxGroupChildPosition = fromNode == toNode ? toNode.mChildren.size() - 1 : toNode.mChildren.size();
+        if (toGroupChildPosition < 0 || toGroupChildPosition > maxGroupChildPosition) {
+            ModelLog.e("Invalid target group child position %d, %d", toGroupPosition, toGroupChildPosition);
+            return;
+        } else if (fromNode == toNode && fromGroupChildPosition == toGroupChildPosition) {
+            return;
+        }
+        int fromItemPosition = fromNode.mExpanded ? convertGroupPosition(fromGroupPosition) + 1 + fromGroupChildPosition : -1;
+        T groupChild = fromNode.mChildren.get(fromGroupChildPosition);
+        fromNode.mChildren.remove(fromGroupChildPosition);
+        toNode.mChildren.add(toGroupChildPosition, groupChild);
+        markSnapshotDirty(fromNode);
+        markSnapshotDirty(toNode);
+        if (fromNode != toNode) {
+            mGroupChildCount.set(fromGroupPosition, fromNode.mChildren.size());
+            mGroupChildCount.set(toGroupPosition, toNode.mChildren.size());
+            if (fromNode.mExpanded) {
+                mGroupSizeTree.add(fromGroupPosition, -1);
+                mGroupAndGroupChildCount--;
+            }
+            if (toNode.mExpanded) {
+                mGroupSizeTree.add(toGroupPosition, 1);
+                mGroupAndGroupChildCount++;
+            }
+        }
+        int toItemPosition = toNode.mExpanded ? convertGroupPosition(toGroupPosition) + 1 + toGroupChildPosition : -1;
+        if (fromItemPosition != -1 && toItemPosition != -1) {
+            dispatchItemMoved(fromItemPosition, toItemPosition);
+        } else if (fromItemPosition != -1) {
+            dispatchItemRangeRemoved(fromItemPosition, 1);
+        } else if (toItemPosition != -1) {
+            dispatchItemRangeInserted(toItemPosition, 1);
+        }
+    }
+
+    private void moveGroupNode(int fromGroupPosition, int toGroupPosition) {
+        if (fromGroupPosition == toGroupPosition) {
+            return;
+        }
+        int fromItemPosition = convertGroupPosition(fromGroupPosition);
+        int groupItemCount = mGroupSizeTree.get(fromGroupPosition);
+        int minGroupPosition = Math.min(fromGroupPosition, toGroupPosition);
+        int maxGroupPosition = Math.max(fromGroupPosition, toGroupPosition);
+        int distance = fromGroupPosition < toGroupPosition ? -1 : 1;
+        Collections.rotate(mGroups.subList(minGroupPosition, maxGroupPosition + 1), distance);
+        for (int i = minGroupPosition; i <= maxGroupPosition; i++) {
+            mGroups.get(i).mPosition = i;
+        }
+        mGroupChildCount.move(fromGroupPosition, toGroupPosition);
+        mGroupSizeTree.move(fromGroupPosition, toGroupPosition);
+        if (mSnapshotGroups != null) {
+            ensureSnapshotGroupsNotShared();
+            Collections.rotate(mSnapshotGroups.subList(minGroupPosition, maxGroupPosition + 1), distance);
+        }
+        onSectionItemRangeRemoved(2, fromGroupPosition, 1);
+        onSectionItemRangeInserted(2, toGroupPosition, 1);
+        int toItemPosition = convertGroupPosition(toGroupPosition);
+        if (groupItemCount > MAX_MOVED_ITEM_COUNT) {
+            beginBatch();
+            dispatchItemRangeRemoved(fromItemPosition, groupItemCount);
+            dispatchItemRangeInserted(toItemPosition, groupItemCount);
+            endBatch();
+            return;
+        }
+        beginBatch();
+        if (toItemPosition > fromItemPosition) {
+            for (int i = 0; i < groupItemCount; i++) {
+                dispatchItemMoved(fromItemPosition, toItemPosition + groupItemCount - 1);
+            }
+        } else {
+            for (int i = 0; i < groupItemCount; i++) {
+                dispatchItemMoved(fromItemPosition + i, toItemPosition + i);
+            }
+        }
+        endBatch();
+    }
+
+    private void setGroupExpanded(int groupPosition, boolean expanded) {
+        if (!checkGroupPosition(groupPosition)) {
+            return;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mExpanded == expanded) {
+            return;
+        }
+        node.mExpanded = expanded;
+        markSnapshotDirty(node);
+        if (expanded) {
+            loadGroupChilds(node);
+        }
+        int groupChildCount = mGroupChildCount.get(groupPosition);
+        if (groupChildCount <= 0) {
+            return;
+        }
+        int itemBeginPosition = convertGroupPosition(groupPosition) + 1;
+        if (expanded) {
+            mGroupSizeTree.add(groupPosition, groupChildCount);
+            mGroupAndGroupChildCount += groupChildCount;
+            dispatchItemRangeInserted(itemBeginPosition, groupChildCount);
+        } else {
+            mGroupSizeTree.add(groupPosition, -groupChildCount);
+            mGroupAndGroupChildCount -= groupChildCount;
+            dispatchItemRangeRemoved(itemBeginPosition, groupChildCount);
+        }
+    }
+
+    public final void setGroupChildProvider(GroupChildProvider<T> provider) {
+        mGroupChildProvider = provider;
+    }
+
+    /**
+     * ExpandableAdapter设置在后台线程加载、在主线程返回结果的GroupChildLoader，
+     * 没有设置时延迟加载以及分页的group不会加载groupChild
+     */
+    final void setGroupChildRequester(GroupChildRequester<T> requester) {
+        mGroupChildRequester = requester;
+    }
+
+    /**
+     * group没有加载过才会加载
+     */
+    private void loadGroupChilds(GroupNode<T> node) {
+        if (node.mLoadState != GroupNode.LOAD_STATE_NOT_LOADED) {
+            return;
+        } else if (mGroupChildProvider == null || mGroupChildRequester == null) {
+            ModelLog.w("No GroupChildProvider, call setGroupChildProvider first");
+            return;
+        }
+        node.mLoadState = GroupNode.LOAD_STATE_LOADING;
+        mGroupChildRequester.load(node, mGroupChildProvider);
+    }
+
+    public final int addLazyGroup(T group) {
+        return addLazyGroup(mGroupCount, group, false);
+    }
+
+    /**
+     * 添加一个groupChild延迟加载的group，groupChild在group第一次展开或者滑动到可见时
+     * 通过{@link GroupChildProvider#loadGroupChilds(Object)}在后台加载，加载完成之后一次性插入
+     *
+     * @param expanded 是否展开，收起的group滑动到可见时也会预先加载，但是不会显示groupChild
+     */
+    public final int addLazyGroup(int groupPosition, T group, boolean expanded) {
+        GroupChildProvider<T> provider = mGroupChildProvider;
+        if (provider == null) {
+            ModelLog.e("No GroupChildProvider, call setGroupChildProvider first");
+            return -1;
+        }
+        groupPosition = addGroup(groupPosition, group);
+        if (groupPosition == -1) {
+            return -1;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        node.mExpanded = expanded;
+        node.mLoadState = GroupNode.LOAD_STATE_NOT_LOADED;
+        node.mDeclaredChildCount = provider.getGroupChildCount(group);
+        return groupPosition;
+    }
+
+    /**
+     * @return groupChild加载之前返回GroupChildProvider给出的个数（可能是{@link GroupChildProvider#UNKNOWN_COUNT}），
+     * 加载之后返回实际个数
+     */
+    public final int getDeclaredGroupChildCount(int groupPosition) {
+        if (!checkGroupPosition(groupPosition)) {
+            return 0;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        return node.mLoadState == GroupNode.LOAD_STATE_LOADED ? mGroupChildCount.get(groupPosition) : node.mDeclaredChildCount;
+    }
+
+    public final boolean isGroupChildLoaded(int groupPosition) {
+        return checkGroupPosition(groupPosition) && mGroups.get(groupPosition).mLoadState == GroupNode.LOAD_STATE_LOADED;
+    }
+
+    /**
+     * itemPosition位置的item显示出来了，延迟加载的group滑动到可见时在这里开始加载
+     */
+    public final void onItemAttached(int itemPosition) {
+        int offset = itemPosition - mHeaderCount - mChildCount;
+        if (offset < 0 || offset >= mGroupAndGroupChildCount) {
+            return;
+        }
+        int groupPosition = mGroupSizeTree.indexOf(offset);
+        if (mGroupSizeTree.prefixSum(groupPosition) != offset) {
+            return;
+        }
+        loadGroupChilds(mGroups.get(groupPosition));
+    }
+
+    /**
+     * GroupChildRequester加载完成
+     */
+    final void onGroupChildsLoaded(GroupNode<T> node, List<T> groupChilds) {
+        int groupPosition = node.mPosition;
+        if (groupPosition >= mGroupCount || mGroups.get(groupPosition) != node) {
+            ModelLog.w("Group was removed before its childs loaded");
+            return;
+        } else if (groupChilds == null) {
+            node.mLoadState = GroupNode.LOAD_STATE_NOT_LOADED;
+            return;
+        }
+        node.mLoadState = GroupNode.LOAD_STATE_LOADED;
+        if (!groupChilds.isEmpty()) {
+            addGroupChild(groupPosition, groupChilds);
+        }
+    }
+
+    public final void setGroupChildPageSource(GroupChildPageSource<T> pageSource) {
+        mGroupChildPageSource = pageSource;
+    }
+
+    /**
+     * 之后添加的分页group生效
+     *
+     * @param pageSize       每页groupChild个数
+     * @param maxCachedPages 每个分页group最多保留的页数，超过之后释放最久没有用到的页
+     */
+    public final void setGroupChildPageConfig(int pageSize, int maxCachedPages) {
+        if (pageSize <= 0 || maxCachedPages < 2) {
+            ModelLog.e("Invalid page config, pageSize=%d, maxCachedPages=%d", pageSize, maxCachedPages);
+            return;
+        }
+        mGroupChildPageSize = pageSize;
+        mMaxCachedGroupChildPages = maxCachedPages;
+    }
+
+    /**
+     * 添加一个groupChild分页加载的group，adapter只记录groupChildCount，
+     * getItem用到某一页时才通过{@link GroupChildPageSource}在后台加载，加载之前getItem返回null，
+     * getItemViewType返回{@link #VIEW_TYPE_PAGED_PLACEHOLDER}，加载完成之后notifyItemRangeChanged。
+     * 分页group不支持addGroupChild、removeGroupChild以及通过item查找groupChild的位置，数据变化之后调用{@link #invalidatePagedGroup(int, int)}
+     */
+    public final int addPagedGroup(int groupPosition, T group, int groupChildCount, boolean expanded) {
+        if (mGroupChildPageSource == null) {
+            ModelLog.e("No GroupChildPageSource, call setGroupChildPageSource first");
+            return -1;
+        } else if (groupChildCount < 0) {
+            ModelLog.e("Invalid group child count %d", groupChildCount);
+            return -1;
+        }
+        groupPosition = addGroup(groupPosition, group);
+        if (groupPosition == -1) {
+            return -1;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        node.mPages = new GroupChildPages<>(groupChildCount, mGroupChildPageSize, mMaxCachedGroupChildPages);
+        node.mExpanded = expanded;
+        mGroupChildCount.set(groupPosition, groupChildCount);
+        if (expanded && groupChildCount > 0) {
+            mGroupSizeTree.add(groupPosition, groupChildCount);
+            mGroupAndGroupChildCount += groupChildCount;
+            dispatchItemRangeInserted(convertGroupPosition(groupPosition) + 1, groupChildCount);
+        }
+        return groupPosition;
+    }
+
+    /**
+     * 分页group的数据变化之后调用，丢弃已经加载的页，用到时重新加载
+     */
+    public final void invalidatePagedGroup(int groupPosition, int groupChildCount) {
+        if (!checkGroupPosition(groupPosition)) {
+            return;
+        } else if (groupChildCount < 0) {
+            ModelLog.e("Invalid group child count %d", groupChildCount);
+            return;
+        }
+        GroupNode<T> node = mGroups.get(groupPosition);
+        if (node.mPages == null) {
+            ModelLog.e("Group %d is not a paged group", groupPosition);
+            return;
+        }
+        int oldGroupChildCount = node.mPages.mCount;
+        node.mPages.clear();
+        node.mPages.mCount = groupChildCount;
+        markSnapshotDirty(node);
+        mGroupChildCount.set(groupPosition, groupChildCount);
+        if (!node.mExpanded) {
+            return;
+        }
+        int diff = groupChildCount - oldGroupChildCount;
+        mGroupSizeTree.add(groupPosition, diff);
+        mGroupAndGroupChildCount += diff;
+        int itemBeginPosition = convertGroupPosition(groupPosition) + 1;
+        int changeCount = Math.min(oldGroupChildCount, groupChildCount);
+        if (changeCount > 0) {
+            dispatchItemRangeChanged(itemBeginPosition, changeCount);
+        }
+        if (diff > 0) {
+            dispatchItemRangeInserted(itemBeginPosition + changeCount, diff);
+        } else if (diff < 0) {
+            dispatchItemRangeRemoved(itemBeginPosition + changeCount, -diff);
+        }
+    }
+
+    /**
+     * 加载index所在的页，并预先加载离index较近的相邻页
+     */
+    private T getPagedGroupChild(GroupNode<T> node, int index) {
+        GroupChildPages<T> pages = node.mPages;
+        int page = index / pages.mPageSize;
+        loadGroupChildPage(node, page);
+        int nearPage = index % pages.mPageSize < pages.mPageSize / 2 ? page - 1 : page + 1;
+        if (nearPage >= 0 && nearPage < pages.getPageCount()) {
+            loadGroupChildPage(node, nearPage);
+        }
+        return pages.get(index);
+    }
+
+    /**
+     * page没有加载也没有正在加载才会加载
+     */
+    private void loadGroupChildPage(GroupNode<T> node, int page) {
+        if (mGroupChildPageSource == null || mGroupChildRequester == null || !node.mPages.markLoading(page)) {
+            return;
+        }
+        mGroupChildRequester.loadPage(node, page, mGroupChildPageSource);
+    }
+
+    /**
+     * GroupChildRequester加载完一页
+     */
+    final void onGroupChildPageLoaded(GroupNode<T> node, int generation, int page, List<T> groupChilds) {
+        int groupPosition = node.mPosition;
+        if (groupPosition >= mGroupCount || mGroups.get(groupPosition) != node || node.mPages.mGeneration != generation) {
+            return;
+        }
+        node.mPages.put(page, groupChilds);
+        if (groupChilds == null || groupChilds.isEmpty() || !node.mExpanded) {
+            return;
+        }
+        int groupChildBeginPosition = page * node.mPages.mPageSize;
+        int changeCount = Math.min(groupChilds.size(), node.mPages.mCount - groupChildBeginPosition);
+        if (changeCount > 0) {
+            dispatchItemRangeChanged(convertGroupPosition(groupPosition) + 1 + groupChildBeginPosition, changeCount);
+        }
+    }
+
+    public final void notifyGroupChildChanged(int groupPosition, int childPosition) {
+        notifyGroupChildChanged(groupPosition, childPosition, null);
+    }
+
+    public final void notifyGroupChildChanged(int groupPosition, int childPosition, Object payload) {
+        int itemPosition = convertGroupChildPosition(groupPosition, childPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        dispatchItemRangeChanged(itemPosition, 1, payload);
+    }
+
+    /**
+     * group收起时groupChild不可见，不发出通知
+     */
+    public final void notifyGroupChildRangeChanged(int groupPosition,
+                                                   int groupChildBeginPosition,
+                                                   int changeCount,
+                                                   Object payload) {
+        if (!checkGroupPosition(groupPosition)
+                || !checkRange("group child", groupChildBeginPosition, changeCount, mGroupChildCount.get(groupPosition))) {
+            return;
+        } else if (!mGroups.get(groupPosition).mExpanded) {
+            return;
+        }
+        dispatchItemRangeChanged(convertGroupPosition(groupPosition) + 1 + groupChildBeginPosition, changeCount, payload);
+    }
+
+    private boolean checkGroupChildPosition(int groupPosition, int groupChildPosition) {
+        int groupChildCount;
+        if (groupChildPosition < 0) {
+            ModelLog.w("Invalid group child position %d, %d", groupPosition, groupChildPosition);
+            return false;
+        } else if (!checkGroupPosition(groupPosition)) {
+            return false;
+        } else if (groupChildPosition >= (groupChildCount = mGroupChildCount.get(groupPosition))) {
+            ModelLog.w("Invalid group child position %d, %d, group %d child size is %d",
+                    groupPosition,
+                    groupChildPosition,
+                    groupPosition,
+                    groupChildCount);
+            return false;
+        }
+        return true;
+    }
+
+    public final int[] getGroupChildPosition(int itemPosition) {
+        int[] groupChildPosition = new int[]{-1, -1};
+        if (!checkItemPosition(itemPosition)) {
+            ModelLog.e("Invalid item position %d", itemPosition);
+            return groupChildPosition;
+        }
+        if (mGroupCount > 0) {
+            int offset = itemPosition - mHeaderCount - mChildCount;
+            int groupPosition = mGroupSizeTree.indexOf(offset);
+            if (groupPosition == -1) {
+                return groupChildPosition;
+            }
+            int childOffset = offset - mGroupSizeTree.prefixSum(groupPosition);
+            if (childOffset > 0) {
+                groupChildPosition[0] = groupPosition;
+                groupChildPosition[1] = childOffset - 1;
+            }
+        }
+        return groupChildPosition;
+    }
+
+    public final int[] getGroupChildPosition(T groupChild) {
+        return getGroupChildPosition(indexOfGroupChild(groupChild));
+    }
+
+    public final int indexOfGroupChild(T groupChild) {
+        if (groupChild == null || mGroupCount == 0) {
+            return -1;
+        }
+        int itemPosition = findItemPosition(groupChild, -1);
+        if (itemPosition != -2) {
+            int groupBeginPosition = mHeaderCount + mChildCount;
+            return itemPosition >= groupBeginPosition && itemPosition < groupBeginPosition + mGroupAndGroupChildCount ? itemPosition : -1;
+        }
+        itemPosition = mHeaderCount + mChildCount;
+        GroupNode<T> node;
+        int groupChildPosition;
+        for (int i = 0; i < mGroupCount; i++) {
+            node = mGroups.get(i);
+            if (node.mGroup.equals(groupChild)) {
+                return itemPosition;
+            }
+            groupChildPosition = node.mExpanded ? node.mChildren.indexOf(groupChild) : -1;
+            if (groupChildPosition != -1) {
+                return itemPosition + 1 + groupChildPosition;
+            }
+            itemPosition += node.size();
+        }
+        return -1;
+    }
+
+    /**
+     * @return -1 表示位置不合法或者group已经收起
+     */
+    public final int convertGroupChildPosition(int groupPosition, int childPosition) {
+        if (!checkGroupChildPosition(groupPosition, childPosition)) {
+            return -1;
+        } else if (!mGroups.get(groupPosition).mExpanded) {
+            return -1;
+        }
+        return convertGroupPosition(groupPosition) + 1 + childPosition;
+    }
+
+    public final void addFooter(T footer) {
+        addFooter(mFooterCount, footer, null);
+    }
+
+    public final void addFooter(List<T> footerList) {
+        addFooter(mFooterCount, null, footerList);
+    }
+
+    public final void addFooter(int footerPosition, T footer) {
+        addFooter(footerPosition, footer, null);
+    }
+
+    public final int addFooter(int footerPosition, T footer, List<T> footerList) {
+        if (footerPosition < 0) {
+            ModelLog.e("Invalid footer position %d", footerPosition);
+            return -1;
+        } else if (footer == null && (null == footerList || footerList.isEmpty())) {
+            ModelLog.e("Wrong footer param");
+            return -1;
+        }
+        int oldFooterCount = mFooterCount;
+        if (footerPosition > oldFooterCount) {
+            footerPosition = oldFooterCount;
+        }
+        int itemPosition = mHeaderCount + mChildCount + mGroupAndGroupChildCount + footerPosition;
+        int addSize;
+        if (footer != null) {
+            mFooters.add(footerPosition, footer);
+            addSize = 1;
+        } else {
+            mFooters.addAll(footerPosition, footerList);
+            addSize = footerList.size();
+        }
+        ModelLog.v("Notify item from %d, count is %d", itemPosition, addSize);
+        mFooterCount += addSize;
+        onSectionItemRangeInserted(3, footerPosition, addSize);
+        dispatchItemRangeInserted(itemPosition, addSize);
+        return footerPosition;
+    }
+
+    public final void removeFooter(T footer) {
+        int itemPosition = indexOfFooter(footer);
+        if (itemPosition == -1) {
+            return;
+        }
+        int footerPosition = itemPosition - convertFooterPosition(0);
+        mFooters.remove(footerPosition);
+        dispatchItemRangeRemoved(itemPosition, 1);
+        mFooterCount--;
+        onSectionItemRangeRemoved(3, footerPosition, 1);
+    }
+
+    /**
+     * 一次遍历删除所有的footers，每段连续删除的item只通知一次
+     */
+    public final void removeFooters(List<T> footers) {
+        int removeCount = removeSectionItems(3,
+                mFooters,
+                mHeaderCount + mChildCount + mGroupAndGroupChildCount,
+                footers);
+        mFooterCount -= removeCount;
+    }
+
+    /**
+     * @param type              0,header;1,child;3,footer
+     * @param itemBeginPosition 分组第一个item在adapter中的位置
+     * @return 删除的个数，调用者需要更新分组的item个数
+     */
+    private int removeSectionItems(int type, Segment<T> segment, int itemBeginPosition, List<T> items) {
+        if (items == null || items.isEmpty() || segment.size() == 0) {
+            return 0;
+        }
+        IntArray runs = new IntArray();
+        int removeCount = segment.removeAll(countItems(items), runs);
+        if (removeCount == 0) {
+            return 0;
+        }
+        mViewTypeIndexes[type] = null;
+        dispatchRemovedRuns(itemBeginPosition, runs);
+        return removeCount;
+    }
+
+    /**
+     * @return item -> 在items中出现的次数
+     */
+    private static <T> HashMap<T, Integer> countItems(List<T> items) {
+        HashMap<T, Integer> counts = new HashMap<>();
+        for (int i = 0, size = items.size(); i < size; i++) {
+            T item = items.get(i);
+            Integer count = counts.get(item);
+            counts.put(item, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * 从后往前通知，前面区间的位置不会受后面删除的影响
+     *
+     * @param runs (fromIndex, count)
+     */
+    private void dispatchRemovedRuns(int itemBeginPosition, IntArray runs) {
+        for (int i = runs.size() - 2; i >= 0; i -= 2) {
+            dispatchItemRangeRemoved(itemBeginPosition + runs.get(i), runs.get(i + 1));
+        }
+    }
+
+    public final void removeFooter(int footerPosition) {
+        removeFooter(footerPosition, 1);
+    }
+
+    public final void clearFooter() {
+        clearFooter(0);
+    }
+
+    public final void clearFooter(int footerBeginPosition) {
+        removeFooter(footerBeginPosition, mFooterCount - footerBeginPosition);
+    }
+
+    public final void removeFooter(int footerBeginPosition, int removeCount) {
+        if (!checkFooterPosition(footerBeginPosition)) {
+            return;
+        }
+        int footerItemBeginPosition = convertFooterPosition(footerBeginPosition);
+        int footerItemEndPosition = footerItemBeginPosition + removeCount;
+        int itemCount = getItemCount();
+        if (footerItemEndPosition > itemCount) {
+            footerItemEndPosition = itemCount;
+            int oldRemoveCount = removeCount;
+            removeCount = footerItemEndPosition - footerItemBeginPosition;
+            ModelLog.i("Reset removeCount from %d to %d", oldRemoveCount, removeCount);
+        }
+        mFooters.removeRange(footerBeginPosition, footerBeginPosition + removeCount);
+        mFooterCount -= removeCount;
+        onSectionItemRangeRemoved(3, footerBeginPosition, removeCount);
+        dispatchItemRangeRemoved(footerItemBeginPosition, removeCount);
+    }
+
+    public final List<T> getFooters() {
+        if (!checkFooterPosition(0)) {
+            return null;
+        }
+        return mFooters.subList(0, mFooterCount);
+    }
+
+
+    public final T getFooter(int footerPosition) {
+        if (!checkFooterPosition(footerPosition)) {
+            return null;
+        }
+        return mFooters.get(footerPosition);
+    }
+
+    public final void updateFooter(int footerPosition, T footer) {
+        int itemPosition = convertFooterPosition(footerPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        mFooters.set(footerPosition, footer);
+        onItemReplaced();
+        onSectionItemChanged(3, footerPosition);
+        dispatchItemRangeChanged(itemPosition, 1);
+    }
+
+    public final void notifyFooterChanged(int footerPosition) {
+        notifyFooterChanged(footerPosition, null);
+    }
+
+    public final void notifyFooterChanged(int footerPosition, Object payload) {
+        int itemPosition = convertFooterPosition(footerPosition);
+        if (itemPosition == -1) {
+            return;
+        }
+        dispatchItemRangeChanged(itemPosition, 1, payload);
+    }
+
+    public final void notifyFooterRangeChanged(int footerBeginPosition, int changeCount, Object payload) {
+        if (!checkRange("footer", footerBeginPosition, changeCount, mFooterCount)) {
+            return;
+        }
+        dispatchItemRangeChanged(mHeaderCount + mChildCount + mGroupAndGroupChildCount + footerBeginPosition,
+                changeCount,
+                payload);
+    }
+
+    public final int getFooterCount() {
+        return mFooterCount;
+    }
+
+    private boolean checkFooterPosition(int footerPosition) {
+        if (footerPosition < 0) {
+            ModelLog.w("Invalid footer position %d", footerPosition);
+            return false;
+        } else if (footerPosition >= mFooterCount) {
+            ModelLog.w("Invalid footer position %d, footer size is %d", footerPosition, mFooterCount);
+            return false;
+        }
+        return true;
+    }
+
+    public final int getFooterPosition(int itemPosition) {
+        if (!checkItemPosition(itemPosition)) {
+            ModelLog.e("Invalid item position %d", itemPosition);
+            return -1;
+        } else if (mFooterCount <= 0) {
+            return -1;
+        } else if (itemPosition < getItemCount() - mFooterCount) {
+            return -1;
+        }
+        return mFooterCount - (getItemCount() - itemPosition);
+    }
+
+    public final int getFooterPosition(T footer) {
+        return getFooterPosition(indexOfFooter(footer));
+    }
+
+    private int indexOfFooter(T footer) {
+        if (footer == null) {
+            return -1;
+        }
+        int itemPosition = findItemPosition(footer, ItemIndex.FOOTER);
+        if (itemPosition != -2) {
+            return itemPosition;
+        }
+        int footerPosition = mFooters.indexOf(footer);
+        return footerPosition == -1 ? -1 : convertFooterPosition(footerPosition);
+    }
+
+    public final int convertFooterPosition(int footerPosition) {
+        if (!checkFooterPosition(footerPosition)) {
+            return -1;
+        }
+        return mHeaderCount + mChildCount + mGroupAndGroupChildCount + footerPosition;
+    }
+
+    /**
+     * O(1)（加上一次snapshot之后修改过的group个数）获取当前数据的不可变快照，可以交给其它线程读取。
+     * 快照与adapter共用底层的列表，之后修改header、child、footer或者某个group时只复制被修改的那一部分
+     */
+    public final ExpandableSnapshot<T> snapshot() {
+        if (mSnapshotGroups == null) {
+            mSnapshotGroups = new ArrayList<>(mGroupCount);
+            for (int i = 0; i < mGroupCount; i++) {
+                mSnapshotGroups.add(mGroups.get(i).freeze());
+            }
+        } else if (!mSnapshotDirtyGroups.isEmpty()) {
+            ensureSnapshotGroupsNotShared();
+            for (int i = 0, size = mSnapshotDirtyGroups.size(); i < size; i++) {
+                GroupNode<T> node = mSnapshotDirtyGroups.get(i);
+                node.mSnapshotDirty = false;
+                int groupPosition = node.mPosition;
+                if (groupPosition < mGroupCount && mGroups.get(groupPosition) == node) {
+                    mSnapshotGroups.set(groupPosition, node.freeze());
+                }
+            }
+        }
+        mSnapshotDirtyGroups.clear();
+        mSnapshotGroupsShared = true;
+        return new ExpandableSnapshot<>(mHeaders.share(),
+                mChilds.share(),
+                Collections.unmodifiableList(mSnapshotGroups),
+                mFooters.share());
+    }
+
+    private void markSnapshotDirty(GroupNode<T> node) {
+        if (mSnapshotGroups != null && !node.mSnapshotDirty) {
+            node.mSnapshotDirty = true;
+            mSnapshotDirtyGroups.add(node);
+        }
+    }
+
+    private void ensureSnapshotGroupsNotShared() {
+        if (mSnapshotGroupsShared) {
+            mSnapshotGroups = new ArrayList<>(mSnapshotGroups);
+            mSnapshotGroupsShared = false;
+        }
+    }
+
+    /**
+     * group整体被替换了，下一次snapshot时重新创建
+     */
+    private void resetSnapshotGroups() {
+        mSnapshotGroups = null;
+        mSnapshotGroupsShared = false;
+        mSnapshotDirtyGroups.clear();
+    }
+
+    /**
+     * 开始批量修改，之后的增删改不会立即通知listener，直到{@link #endBatch()}时
+     * 把相邻或者重叠的通知合并之后一次性发出。可以嵌套，最外层的endBatch才会发出通知
+     */
+    public final void beginBatch() {
+        mBatchDepth++;
+    }
+
+    public final void endBatch() {
+        if (mBatchDepth <= 0) {
+            ModelLog.e("endBatch without beginBatch");
+            return;
+        }
+        if (--mBatchDepth == 0) {
+            mNotifyBatch.dispatch(mListener);
+        }
+    }
+
+    public final boolean isInBatch() {
+        return mBatchDepth > 0;
+    }
+
+    final int getModCount() {
+        return mModCount;
+    }
+
+    /**
+     * item被替换，虽然不改变结构，但是快照里面的item已经不是当前的
+     */
+    private void onItemReplaced() {
+        mModCount++;
+    }
+
+    final void dispatchItemRangeInserted(int positionStart, int itemCount) {
+        mModCount++;
+        if (mBatchDepth > 0) {
+            mNotifyBatch.addInsert(positionStart, itemCount);
+        } else {
+            mListener.onItemRangeInserted(positionStart, itemCount);
+        }
+    }
+
+    final void dispatchItemRangeRemoved(int positionStart, int itemCount) {
+        mModCount++;
+        if (mBatchDepth > 0) {
+            mNotifyBatch.addRemove(positionStart, itemCount);
+        } else {
+            mListener.onItemRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    private void dispatchItemRangeChanged(int positionStart, int itemCount) {
+        dispatchItemRangeChanged(positionStart, itemCount, null);
+    }
+
+    final void dispatchItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        if (mBatchDepth > 0) {
+            mNotifyBatch.addChange(positionStart, itemCount, payload);
+        } else {
+            mListener.onItemRangeChanged(positionStart, itemCount, payload);
+        }
+    }
+
+    /**
+     * [beginPosition, beginPosition + count)是否在[0, size)里面
+     */
+    private boolean checkRange(String section, int beginPosition, int count, int size) {
+        if (beginPosition < 0 || count <= 0 || beginPosition + count > size) {
+            ModelLog.w("Invalid %s range %d, %d, %s size is %d", section, beginPosition, count, section, size);
+            return false;
+        }
+        return true;
+    }
+
+    final void dispatchItemMoved(int fromPosition, int toPosition) {
+        mModCount++;
+        if (mBatchDepth > 0) {
+            mNotifyBatch.addMove(fromPosition, toPosition);
+        } else {
+            mListener.onItemMoved(fromPosition, toPosition);
+        }
+    }
+
+    final void dispatchDataSetChanged() {
+        mModCount++;
+        if (mBatchDepth > 0) {
+            mNotifyBatch.setDataSetChanged();
+        } else {
+            mListener.onDataSetChanged();
+        }
+    }
+
+    public final int getItemCount() {
+        return mHeaderCount + mChildCount + mGroupAndGroupChildCount + mFooterCount;
+    }
+
+    private boolean checkItemPosition(int itemPosition) {
+        int itemCount = getItemCount();
+        if (itemPosition < 0 || itemPosition >= itemCount) {
+            ModelLog.e("Invalid itemPosition %d, item count is %d", itemPosition, itemCount);
+            return false;
+        }
+        return true;
+    }
+
+    public final int getHeaderPositionByViewType(int viewType) {
+        return getViewTypeIndex(0).first(viewType);
+    }
+
+    public final int getLastHeaderPositionByViewType(int viewType) {
+        return getViewTypeIndex(0).last(viewType);
+    }
+
+    public final void removeHeaderByViewType(int viewType) {
+        int p = getHeaderPositionByViewType(viewType);
+        if (p != -1) {
+            removeHeader(p);
+        } else {
+            ModelLog.w("No header's viewType is %d", viewType);
+        }
+    }
+
+    public final int getChildPositionByViewType(int viewType) {
+        return getViewTypeIndex(1).first(viewType);
+    }
+
+    public final int getLastChildPositionByViewType(int viewType) {
+        return getViewTypeIndex(1).last(viewType);
+    }
+
+    public final void removeChildByViewType(int viewType) {
+        int p = getChildPositionByViewType(viewType);
+        if (p != -1) {
+            removeChild(p);
+        } else {
+            ModelLog.w("No child's viewType is %d", viewType);
+        }
+    }
+
+    public final int getGroupPositionByViewType(int viewType) {
+        return getViewTypeIndex(2).first(viewType);
+    }
+
+    public final int getLastGroupPositionByViewType(int viewType) {
+        return getViewTypeIndex(2).last(viewType);
+    }
+
+    public final void removeGroupByViewType(int viewType) {
+        int gpos = getGroupPositionByViewType(viewType);
+        if (-1 != gpos) {
+            removeGroup(gpos);
+        } else {
+            ModelLog.w("no group's viewType is %d", viewType);
+        }
+    }
+
+    public final int getFooterPositionByViewType(int viewType) {
+        return getViewTypeIndex(3).first(viewType);
+    }
+
+    public final int getLastFooterPositionByViewType(int viewType) {
+        return getViewTypeIndex(3).last(viewType);
+    }
+
+    public final void removeFooterByViewType(int viewType) {
+        int p = getFooterPositionByViewType(viewType);
+        if (p != -1) {
+            removeFooter(p);
+        } else {
+            ModelLog.w("no footer's viewType is %d", viewType);
+        }
+    }
+
+    /**
+     * @param type 0,header;1,child;2,group,3,footer
+     */
+    private ViewTypeIndex getViewTypeIndex(int type) {
+        ViewTypeIndex viewTypeIndex = mViewTypeIndexes[type];
+        if (viewTypeIndex == null) {
+            viewTypeIndex = new ViewTypeIndex();
+            int count = getSectionCount(type);
+            if (count > 0) {
+                viewTypeIndex.insert(0, getSectionViewTypes(type, 0, count));
+            }
+            mViewTypeIndexes[type] = viewTypeIndex;
+        }
+        return viewTypeIndex;
+    }
+
+    private int getSectionCount(int type) {
+        switch (type) {
+            case 0:
+                return mHeaderCount;
+            case 1:
+                return mChildCount;
+            case 2:
+                return mGroupCount;
+            case 3:
+                return mFooterCount;
+            default:
+                return 0;
+        }
+    }
+
+    private int[] getSectionViewTypes(int type, int sectionPosition, int count) {
+        int[] viewTypes = new int[count];
+        int itemPosition;
+        for (int i = 0; i < count; i++) {
+            switch (type) {
+                case 0:
+                    itemPosition = sectionPosition + i;
+                    break;
+                case 1:
+                    itemPosition = mHeaderCount + sectionPosition + i;
+                    break;
+                case 2:
+                    itemPosition = mHeaderCount + mChildCount + mGroupSizeTree.prefixSum(sectionPosition + i);
+                    break;
+                default:
+                    itemPosition = mHeaderCount + mChildCount + mGroupAndGroupChildCount + sectionPosition + i;
+                    break;
+            }
+            viewTypes[i] = getItemViewType(itemPosition);
+        }
+        return viewTypes;
+    }
+
+    private void onSectionItemRangeInserted(int type, int sectionPosition, int count) {
+        ViewTypeIndex viewTypeIndex = mViewTypeIndexes[type];
+        if (viewTypeIndex != null) {
+            viewTypeIndex.insert(sectionPosition, getSectionViewTypes(type, sectionPosition, count));
+        }
+    }
+
+    private void onSectionItemRangeRemoved(int type, int sectionPosition, int count) {
+        ViewTypeIndex viewTypeIndex = mViewTypeIndexes[type];
+        if (viewTypeIndex != null) {
+            viewTypeIndex.remove(sectionPosition, sectionPosition + count);
+        }
+    }
+
+    private void onSectionItemChanged(int type, int sectionPosition) {
+        ViewTypeIndex viewTypeIndex = mViewTypeIndexes[type];
+        if (viewTypeIndex != null) {
+            viewTypeIndex.update(sectionPosition, getSectionViewTypes(type, sectionPosition, 1)[0]);
+        }
+    }
+
+    public int getHeaderPosition(int currViewType, List<Integer> headerListViewTypes) {
+        return getPosition(0, headerListViewTypes, currViewType);
+    }
+
+    public int getChildPosition(int currViewType, List<Integer> childListViewTypes) {
+        return getPosition(1, childListViewTypes, currViewType);
+    }
+
+    public int getGroupPosition(int currViewType, List<Integer> groupListViewTypes) {
+        return getPosition(2, groupListViewTypes, currViewType);
+    }
+
+    public int getFooterPosition(int currViewType, List<Integer> footerListViewTypes) {
+        return getPosition(3, footerListViewTypes, currViewType);
+    }
+
+    /**
+     * @param type         0,header;1,child;2,group,3,footer
+     * @param viewTypes    constrainted viewtype list
+     * @param currViewType the viewType which you need to calculate the right position
+     */
+    private int getPosition(int type, List<Integer> viewTypes, int currViewType) {
+        if (viewTypes == null || viewTypes.isEmpty()) {
+            ModelLog.w("Please call method setXXXViewTypePositionConstraints");
+            return -1;
+        }
+        int currViewTypePosition = viewTypes.indexOf(currViewType);
+        if (currViewTypePosition == -1) {
+            ModelLog.w("ViewType %d not find in XXX constraint viewType list");
+            return -1;
+        }
+        if (currViewTypePosition == 0) {
+            return 0;
+        }
+        int tmp;
+        int targetPos = -1;
+        for (int i = currViewTypePosition - 1; i >= 0; i--) {
+            switch (type) {
+                case 0:
+                    tmp = getLastHeaderPositionByViewType(viewTypes.get(i));
+                    break;
+                case 1:
+                    tmp = getLastChildPositionByViewType(viewTypes.get(i));
+                    break;
+                case 2:
+                    tmp = getLastGroupPositionByViewType(viewTypes.get(i));
+                    break;
+                case 3:
+                    tmp = getLastFooterPositionByViewType(viewTypes.get(i));
+                    break;
+                default:
+                    return -1;
+            }
+            if (tmp >= 0) {
+                targetPos = tmp + 1;
+                break;
+            }
+        }
+        if (targetPos == -1) {
+            targetPos = 0;
+        }
+        return targetPos;
+    }
+}
@@ -0,0 +1,21 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * {@link ExpandableModel}数据变化的通知，位置都是item在整个列表中的位置，
+ * 与RecyclerView.Adapter的notifyXXX一一对应，ExpandableAdapter直接转发给RecyclerView
+ */
+public interface ExpandableModelListener {
+
+    void onItemRangeInserted(int positionStart, int itemCount);
+
+    void onItemRangeRemoved(int positionStart, int itemCount);
+
+    /**
+     * @param payload 没有时为null
+     */
+    void onItemRangeChanged(int positionStart, int itemCount, Object payload);
+
+    void onItemMoved(int fromPosition, int toPosition);
+
+    void onDataSetChanged();
+}
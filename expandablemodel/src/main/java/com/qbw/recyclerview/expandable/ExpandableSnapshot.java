@@ -0,0 +1,168 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.List;
+
+/**
+ * adapter某一时刻的数据，通过{@link ExpandableModel#snapshot()}获取，不可修改，可以在任意线程读取。
+ * 与adapter共用底层的列表，adapter之后修改某个分组时才会复制那一个分组
+ */
+public final class ExpandableSnapshot<T> {
+
+    static final class Group<T> {
+        final T mGroup;
+        /**
+         * 分页group为null
+         */
+        final List<T> mGroupChilds;
+        final int mGroupChildCount;
+        final boolean mExpanded;
+
+        Group(T group, List<T> groupChilds, int groupChildCount, boolean expanded) {
+            mGroup = group;
+            mGroupChilds = groupChilds;
+            mGroupChildCount = groupChildCount;
+            mExpanded = expanded;
+        }
+
+        int size() {
+            return 1 + (mExpanded ? mGroupChildCount : 0);
+        }
+    }
+
+    private final List<T> mHeaders;
+    private final List<T> mChilds;
+    private final List<Group<T>> mGroups;
+    private final List<T> mFooters;
+
+    /**
+     * 每个group在adapter中的起始位置（相对于第一个group），第一次按位置读取时计算
+     */
+    private volatile int[] mGroupItemPositions;
+
+    ExpandableSnapshot(List<T> headers, List<T> childs, List<Group<T>> groups, List<T> footers) {
+        mHeaders = headers;
+        mChilds = childs;
+        mGroups = groups;
+        mFooters = footers;
+    }
+
+    public List<T> getHeaders() {
+        return mHeaders;
+    }
+
+    public int getHeaderCount() {
+        return mHeaders.size();
+    }
+
+    public T getHeader(int headerPosition) {
+        return mHeaders.get(headerPosition);
+    }
+
+    public List<T> getChilds() {
+        return mChilds;
+    }
+
+    public int getChildCount() {
+        return mChilds.size();
+    }
+
+    public T getChild(int childPosition) {
+        return mChilds.get(childPosition);
+    }
+
+    public int getGroupCount() {
+        return mGroups.size();
+    }
+
+    public T getGroup(int groupPosition) {
+        return mGroups.get(groupPosition).mGroup;
+    }
+
+    public boolean isGroupExpanded(int groupPosition) {
+        return mGroups.get(groupPosition).mExpanded;
+    }
+
+    public int getGroupChildCount(int groupPosition) {
+        return mGroups.get(groupPosition).mGroupChildCount;
+    }
+
+    /**
+     * @return 分页group返回null
+     */
+    public List<T> getGroupChilds(int groupPosition) {
+        return mGroups.get(groupPosition).mGroupChilds;
+    }
+
+    /**
+     * @return 分页group返回null
+     */
+    public T getGroupChild(int groupPosition, int groupChildPosition) {
+        List<T> groupChilds = mGroups.get(groupPosition).mGroupChilds;
+        return groupChilds == null ? null : groupChilds.get(groupChildPosition);
+    }
+
+    public List<T> getFooters() {
+        return mFooters;
+    }
+
+    public int getFooterCount() {
+        return mFooters.size();
+    }
+
+    public T getFooter(int footerPosition) {
+        return mFooters.get(footerPosition);
+    }
+
+    /**
+     * @return 与snapshot时adapter的getItemCount相同
+     */
+    public int getItemCount() {
+        int[] groupItemPositions = getGroupItemPositions();
+        return mHeaders.size() + mChilds.size() + groupItemPositions[groupItemPositions.length - 1] + mFooters.size();
+    }
+
+    /**
+     * @return 与snapshot时adapter的getItem相同，分页group没有加载的groupChild返回null
+     */
+    public T getItem(int itemPosition) {
+        if (itemPosition < mHeaders.size()) {
+            return mHeaders.get(itemPosition);
+        }
+        itemPosition -= mHeaders.size();
+        if (itemPosition < mChilds.size()) {
+            return mChilds.get(itemPosition);
+        }
+        itemPosition -= mChilds.size();
+        int[] groupItemPositions = getGroupItemPositions();
+        int groupCount = mGroups.size();
+        if (itemPosition < groupItemPositions[groupCount]) {
+            int low = 0;
+            int high = groupCount - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (groupItemPositions[mid] <= itemPosition) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int childOffset = itemPosition - groupItemPositions[low];
+            return childOffset == 0 ? getGroup(low) : getGroupChild(low, childOffset - 1);
+        }
+        itemPosition -= groupItemPositions[groupCount];
+        return mFooters.get(itemPosition);
+    }
+
+    private int[] getGroupItemPositions() {
+        int[] groupItemPositions = mGroupItemPositions;
+        if (groupItemPositions == null) {
+            int groupCount = mGroups.size();
+            groupItemPositions = new int[groupCount + 1];
+            for (int i = 0; i < groupCount; i++) {
+                groupItemPositions[i + 1] = groupItemPositions[i] + mGroups.get(i).size();
+            }
+            mGroupItemPositions = groupItemPositions;
+        }
+        return groupItemPositions;
+    }
+}
@@ -0,0 +1,19 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.List;
+
+/**
+ * 分页加载groupChild，配合{@link ExpandableModel#addPagedGroup(int, Object, int, boolean)}使用。
+ * adapter只记录groupChild个数，滑动到附近时才按页加载，离开较远的页会被释放
+ */
+public interface GroupChildPageSource<T> {
+
+    /**
+     * 后台线程调用
+     *
+     * @param startPosition 第一个groupChild的位置
+     * @param loadCount     最多加载的个数
+     * @return [startPosition, startPosition + loadCount)的groupChild，返回null表示加载失败，下次用到时会重新加载
+     */
+    List<T> loadGroupChilds(T group, int startPosition, int loadCount);
+}
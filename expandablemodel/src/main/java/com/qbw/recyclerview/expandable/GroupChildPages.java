@@ -0,0 +1,131 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分页group的groupChild，只保存最近用到的几页，按访问顺序淘汰
+ */
+final class GroupChildPages<T> {
+
+    final int mPageSize;
+    /**
+     * groupChild个数，包括没有加载的
+     */
+    int mCount;
+    /**
+     * invalidate之后加1，丢弃之前发出的加载结果
+     */
+    int mGeneration;
+
+    private static final class Page<T> {
+        final List<T> mItems;
+        /**
+         * 缓存的viewType，和页一起淘汰
+         */
+        final int[] mViewTypes;
+
+        Page(List<T> items) {
+            mItems = new ArrayList<>(items);
+            mViewTypes = new int[items.size()];
+            Arrays.fill(mViewTypes, Segment.VIEW_TYPE_UNKNOWN);
+        }
+    }
+
+    private final LinkedHashMap<Integer, Page<T>> mPages;
+    private final Set<Integer> mLoadingPages = new HashSet<>();
+
+    GroupChildPages(int count, int pageSize, final int maxCachedPages) {
+        mCount = count;
+        mPageSize = pageSize;
+        mPages = new LinkedHashMap<Integer, Page<T>>(maxCachedPages + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+    }
+
+    /**
+     * @return index所在的页，没有加载或者这一页没有index位置的数据返回null
+     */
+    private Page<T> getPage(int index) {
+        Page<T> page = mPages.get(index / mPageSize);
+        return page == null || index % mPageSize >= page.mItems.size() ? null : page;
+    }
+
+    /**
+     * @return index位置的groupChild，所在的页没有加载返回null
+     */
+    T get(int index) {
+        Page<T> page = getPage(index);
+        return page == null ? null : page.mItems.get(index % mPageSize);
+    }
+
+    boolean isLoaded(int index) {
+        return getPage(index) != null;
+    }
+
+    /**
+     * @return 所在的页没有加载返回false
+     */
+    boolean set(int index, T item) {
+        Page<T> page = getPage(index);
+        if (page == null) {
+            return false;
+        }
+        page.mItems.set(index % mPageSize, item);
+        page.mViewTypes[index % mPageSize] = Segment.VIEW_TYPE_UNKNOWN;
+        return true;
+    }
+
+    /**
+     * @return 没有缓存或者所在的页没有加载返回Segment.VIEW_TYPE_UNKNOWN
+     */
+    int getViewType(int index) {
+        Page<T> page = getPage(index);
+        return page == null ? Segment.VIEW_TYPE_UNKNOWN : page.mViewTypes[index % mPageSize];
+    }
+
+    void setViewType(int index, int viewType) {
+        Page<T> page = getPage(index);
+        if (page != null) {
+            page.mViewTypes[index % mPageSize] = viewType;
+        }
+    }
+
+    void invalidateViewTypes() {
+        for (Page<T> page : mPages.values()) {
+            Arrays.fill(page.mViewTypes, Segment.VIEW_TYPE_UNKNOWN);
+        }
+    }
+
+    int getPageCount() {
+        return (mCount + mPageSize - 1) / mPageSize;
+    }
+
+    /**
+     * @return page没有加载也没有正在加载，调用之后标记为正在加载
+     */
+    boolean markLoading(int page) {
+        return !mPages.containsKey(page) && mLoadingPages.add(page);
+    }
+
+    void put(int page, List<T> items) {
+        mLoadingPages.remove(page);
+        if (items != null) {
+            mPages.put(page, new Page<>(items));
+        }
+    }
+
+    void clear() {
+        mPages.clear();
+        mLoadingPages.clear();
+        mGeneration++;
+    }
+}
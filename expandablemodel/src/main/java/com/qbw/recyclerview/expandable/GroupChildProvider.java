@@ -0,0 +1,29 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.List;
+
+/**
+ * 延迟加载groupChild，配合{@link ExpandableModel#addLazyGroup(int, Object, boolean)}使用。
+ * group第一次展开或者滑动到可见时才会在后台线程加载它的groupChild
+ */
+public interface GroupChildProvider<T> {
+
+    /**
+     * groupChild个数未知
+     */
+    int UNKNOWN_COUNT = -1;
+
+    /**
+     * 主线程调用，加载之前用来显示groupChild个数（例如"共12条"）
+     *
+     * @return groupChild个数，未知返回{@link #UNKNOWN_COUNT}
+     */
+    int getGroupChildCount(T group);
+
+    /**
+     * 后台线程调用
+     *
+     * @return group的所有groupChild，返回null表示加载失败，下次展开时会重新加载
+     */
+    List<T> loadGroupChilds(T group);
+}
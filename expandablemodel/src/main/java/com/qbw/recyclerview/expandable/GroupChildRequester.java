@@ -0,0 +1,19 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * 延迟加载以及分页加载的group需要加载groupChild时由model调用，加载完成之后在model所在的线程调用
+ * {@link ExpandableModel#onGroupChildsLoaded(GroupNode, java.util.List)}、
+ * {@link ExpandableModel#onGroupChildPageLoaded(GroupNode, int, int, java.util.List)}
+ */
+interface GroupChildRequester<T> {
+
+    /**
+     * group没有加载过才会调用
+     */
+    void load(GroupNode<T> node, GroupChildProvider<T> provider);
+
+    /**
+     * page没有加载也没有正在加载才会调用
+     */
+    void loadPage(GroupNode<T> node, int page, GroupChildPageSource<T> pageSource);
+}
@@ -0,0 +1,81 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * 一个group以及它的groupChild
+ */
+final class GroupNode<T> {
+
+    T mGroup;
+    /**
+     * mGroup的viewType缓存
+     */
+    int mViewType = Segment.VIEW_TYPE_UNKNOWN;
+
+    final Segment<T> mChildren;
+
+    /**
+     * group position，group插入删除时由adapter更新
+     */
+    int mPosition;
+
+    /**
+     * 收起时groupChild不显示
+     */
+    boolean mExpanded = true;
+
+    static final int LOAD_STATE_LOADED = 0;
+    static final int LOAD_STATE_NOT_LOADED = 1;
+    static final int LOAD_STATE_LOADING = 2;
+
+    /**
+     * 延迟加载的group（addLazyGroup）groupChild是否已经加载
+     */
+    int mLoadState = LOAD_STATE_LOADED;
+    /**
+     * 加载之前GroupChildProvider给出的groupChild个数
+     */
+    int mDeclaredChildCount;
+
+    /**
+     * 分页加载的group（addPagedGroup），groupChild不放在mChildren里面
+     */
+    GroupChildPages<T> mPages;
+
+    /**
+     * 上一次snapshot之后修改过，下一次snapshot时需要重新freeze
+     */
+    boolean mSnapshotDirty;
+
+    GroupNode(T group) {
+        mGroup = group;
+        mChildren = new Segment<>(ItemIndex.GROUP_CHILD, this);
+    }
+
+    /**
+     * @return group在adapter中占用的item个数，收起时只有group自身
+     */
+    int size() {
+        return 1 + (mExpanded ? childCount() : 0);
+    }
+
+    int childCount() {
+        return mPages != null ? mPages.mCount : mChildren.size();
+    }
+
+    /**
+     * @return index位置的groupChild，分页group没有加载时返回null
+     */
+    T getChild(int index) {
+        return mPages != null ? mPages.get(index) : mChildren.get(index);
+    }
+
+    /**
+     * @return 当前数据的不可变副本，groupChild列表与mChildren共用
+     */
+    ExpandableSnapshot.Group<T> freeze() {
+        return new ExpandableSnapshot.Group<>(mGroup,
+                mPages != null ? null : mChildren.share(),
+                childCount(),
+                mExpanded);
+    }
+}
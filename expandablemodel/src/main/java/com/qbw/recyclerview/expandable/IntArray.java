@@ -0,0 +1,150 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.Arrays;
+
+/**
+ * 可增长的int数组，代替List<Integer>，避免装箱拆箱以及大量Integer对象占用内存
+ */
+final class IntArray {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] mValues;
+    private int mSize;
+
+    IntArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntArray(int initialCapacity) {
+        mValues = new int[Math.max(initialCapacity, 1)];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int get(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    void set(int index, int value) {
+        checkIndex(index);
+        mValues[index] = value;
+    }
+
+    void add(int value) {
+        add(mSize, value);
+    }
+
+    void add(int index, int value) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+    }
+
+    /**
+     * 在index处插入count个value
+     */
+    void add(int index, int count, int value) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        ensureCapacity(mSize + count);
+        System.arraycopy(mValues, index, mValues, index + count, mSize - index);
+        Arrays.fill(mValues, index, index + count, value);
+        mSize += count;
+    }
+
+    void addAll(int index, IntArray values) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        int count = values.mSize;
+        ensureCapacity(mSize + count);
+        System.arraycopy(mValues, index, mValues, index + count, mSize - index);
+        System.arraycopy(values.mValues, 0, mValues, index, count);
+        mSize += count;
+    }
+
+    void remove(int index) {
+        checkIndex(index);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+    }
+
+    /**
+     * 把fromIndex的元素移动到toIndex，中间的元素依次平移一位
+     */
+    void move(int fromIndex, int toIndex) {
+        checkIndex(fromIndex);
+        checkIndex(toIndex);
+        int value = mValues[fromIndex];
+        if (fromIndex < toIndex) {
+            System.arraycopy(mValues, fromIndex + 1, mValues, fromIndex, toIndex - fromIndex);
+        } else {
+            System.arraycopy(mValues, toIndex, mValues, toIndex + 1, fromIndex - toIndex);
+        }
+        mValues[toIndex] = value;
+    }
+
+    /**
+     * 删除[fromIndex, toIndex)
+     */
+    void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("range [" + fromIndex + ", " + toIndex + "), size " + mSize);
+        }
+        System.arraycopy(mValues, toIndex, mValues, fromIndex, mSize - toIndex);
+        mSize -= toIndex - fromIndex;
+    }
+
+    /**
+     * [fromIndex, size)的元素都加上delta
+     */
+    void offset(int fromIndex, int delta) {
+        for (int i = fromIndex; i < mSize; i++) {
+            mValues[i] += delta;
+        }
+    }
+
+    /**
+     * 要求数组升序
+     *
+     * @return 第一个大于等于value的元素的index，没有返回size()
+     */
+    int lowerBound(int value) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mValues[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > mValues.length) {
+            mValues = Arrays.copyOf(mValues, Math.max(size, mValues.length * 2));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * item -> 所在分组以及在分组里面位置的索引，由Segment在每次增删改时增量维护，
+ * 让indexOfXXX、getXXXPosition(T)等查找不用再线性遍历。
+ * item需要正确实现equals和hashCode，并且放入adapter之后hashCode不能改变。
+ */
+final class ItemIndex<T> {
+
+    static final int HEADER = 0;
+    static final int CHILD = 1;
+    static final int GROUP = 2;
+    static final int GROUP_CHILD = 3;
+    static final int FOOTER = 4;
+
+    static final class Slot<T> {
+        final int mSection;
+        /**
+         * GROUP、GROUP_CHILD所在的group
+         */
+        final GroupNode<T> mNode;
+        /**
+         * 在分组（或者group的groupChild）里面的位置
+         */
+        int mIndex;
+        /**
+         * 有多个equals的item，只能遍历查找，mIndex没有意义；删到只剩一个时由model重新确定位置，全部删除之后slot也会被删除
+         */
+        boolean mAmbiguous;
+        /**
+         * adapter里面equals的item个数
+         */
+        int mCount = 1;
+
+        Slot(int section, GroupNode<T> node, int index) {
+            mSection = section;
+            mNode = node;
+            mIndex = index;
+        }
+    }
+
+    private final HashMap<T, Slot<T>> mSlots = new HashMap<>();
+    /**
+     * 删到只剩一个的重复item，等下次查找时由model一次遍历重新确定位置
+     */
+    private final ArrayList<T> mRelocations = new ArrayList<>();
+
+    void put(T item, int section, GroupNode<T> node, int index) {
+        if (item == null) {
+            return;
+        }
+        Slot<T> slot = mSlots.get(item);
+        if (slot != null) {
+            slot.mCount++;
+            slot.mAmbiguous = true;
+            return;
+        }
+        mSlots.put(item, new Slot<>(section, node, index));
+    }
+
+    void remove(T item) {
+        if (item == null) {
+            return;
+        }
+        Slot<T> slot = mSlots.get(item);
+        if (slot == null) {
+            return;
+        }
+        if (--slot.mCount == 0) {
+            mSlots.remove(item);
+        } else if (slot.mCount == 1 && slot.mAmbiguous) {
+            mRelocations.add(item);
+        }
+    }
+
+    /**
+     * item在分组里面的位置改变了
+     */
+    void move(T item, int index) {
+        if (item == null) {
+            return;
+        }
+        Slot<T> slot = mSlots.get(item);
+        if (slot != null) {
+            slot.mIndex = index;
+        }
+    }
+
+    /**
+     * @return null表示adapter里面没有这个item；Slot.mAmbiguous为true时需要遍历查找
+     */
+    Slot<T> get(T item) {
+        return item == null ? null : mSlots.get(item);
+    }
+
+    boolean needsRelocate() {
+        return !mRelocations.isEmpty();
+    }
+
+    /**
+     * 删除只剩一个但仍然标记为重复的item的slot，model需要找到这些item并重新put
+     */
+    HashSet<T> takeRelocations() {
+        HashSet<T> items = new HashSet<>();
+        for (int i = 0, size = mRelocations.size(); i < size; i++) {
+            T item = mRelocations.get(i);
+            Slot<T> slot = mSlots.get(item);
+            if (slot != null && slot.mCount == 1 && slot.mAmbiguous) {
+                mSlots.remove(item);
+                items.add(item);
+            }
+        }
+        mRelocations.clear();
+        return items;
+    }
+
+    void clear() {
+        mSlots.clear();
+        mRelocations.clear();
+    }
+}
@@ -0,0 +1,13 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * 配合{@link ExpandableModel#setItemKeyProvider(ItemKeyProvider)}使用，为item生成稳定的id
+ */
+public interface ItemKeyProvider<T> {
+
+    /**
+     * 返回值需要正确实现equals和hashCode，同一个分组里面不能重复（所有group的groupChild算同一个分组），
+     * 不同分组之间可以重复。返回null时使用item本身作为key
+     */
+    Object getItemKey(T item);
+}
@@ -0,0 +1,13 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * 配合{@link ExpandableModel#setItemViewTypeProvider(ItemViewTypeProvider)}使用，
+ * item的viewType第一次用到时调用，结果会被缓存
+ */
+public interface ItemViewTypeProvider<T> {
+
+    /**
+     * @param itemPosition item当前的位置
+     */
+    int getItemViewType(T item, int itemPosition);
+}
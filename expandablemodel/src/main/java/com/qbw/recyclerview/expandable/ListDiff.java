@@ -0,0 +1,133 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Myers差分算法（线性空间版本），计算两个列表的最长公共子序列，item通过equals判断是否相同
+ */
+final class ListDiff {
+
+    private ListDiff() {
+    }
+
+    /**
+     * @return oldList中每个item在newList中对应的位置，被删除的item为-1；对应的位置是递增的
+     */
+    static <T> int[] diff(List<T> oldList, List<T> newList) {
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+        int[] oldToNew = new int[oldSize];
+        Arrays.fill(oldToNew, -1);
+        // 去掉相同的开头和结尾
+        int start = 0;
+        while (start < oldSize && start < newSize && equal(oldList.get(start), newList.get(start))) {
+            oldToNew[start] = start;
+            start++;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start && equal(oldList.get(oldEnd - 1), newList.get(newEnd - 1))) {
+            oldToNew[--oldEnd] = --newEnd;
+        }
+        int max = ((oldEnd - start) + (newEnd - start) + 1) / 2;
+        int[] forward = new int[max * 2 + 3];
+        int[] backward = new int[max * 2 + 3];
+        // {left, top, right, bottom}，old在[left, right)，new在[top, bottom)
+        List<int[]> boxes = new ArrayList<>();
+        boxes.add(new int[]{start, start, oldEnd, newEnd});
+        while (!boxes.isEmpty()) {
+            int[] box = boxes.remove(boxes.size() - 1);
+            int[] snake = middleSnake(oldList, newList, box, forward, backward);
+            if (snake == null) {
+                continue;
+            }
+            for (int i = 0; i < snake[6]; i++) {
+                oldToNew[snake[4] + i] = snake[5] + i;
+            }
+            boxes.add(new int[]{box[0], box[1], snake[0], snake[1]});
+            boxes.add(new int[]{snake[2], snake[3], box[2], box[3]});
+        }
+        return oldToNew;
+    }
+
+    /**
+     * 找到box内最短编辑路径中间的一段（最多一次增删加上一段相同的item）
+     *
+     * @return {startX, startY, finishX, finishY, 相同item的起点x, 起点y, 个数}；box为空返回null
+     */
+    private static <T> int[] middleSnake(List<T> oldList,
+                                         List<T> newList,
+                                         int[] box,
+                                         int[] forward,
+                                         int[] backward) {
+        int left = box[0];
+        int top = box[1];
+        int right = box[2];
+        int bottom = box[3];
+        int size = (right - left) + (bottom - top);
+        if (size == 0) {
+            return null;
+        }
+        int delta = (right - left) - (bottom - top);
+        int max = (size + 1) / 2;
+        int offset = max + 1;
+        // forward以k = x - y为下标保存x，backward以c = k - delta为下标保存y
+        forward[offset + 1] = left;
+        backward[offset + 1] = bottom;
+        boolean odd = (delta & 1) != 0;
+        for (int d = 0; d <= max; d++) {
+            for (int k = d; k >= -d; k -= 2) {
+                int c = k - delta;
+                int px;
+                int x;
+                if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+                    px = x = forward[offset + k + 1];
+                } else {
+                    px = forward[offset + k - 1];
+                    x = px + 1;
+                }
+                int y = top + (x - left) - k;
+                int py = (d == 0 || x != px) ? y : y - 1;
+                int diagX = x;
+                int diagY = y;
+                while (x < right && y < bottom && equal(oldList.get(x), newList.get(y))) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                if (odd && c >= -(d - 1) && c <= d - 1 && y >= backward[offset + c]) {
+                    return new int[]{px, py, x, y, diagX, diagY, x - diagX};
+                }
+            }
+            for (int c = d; c >= -d; c -= 2) {
+                int k = c + delta;
+                int py;
+                int y;
+                if (c == -d || (c != d && backward[offset + c - 1] > backward[offset + c + 1])) {
+                    py = y = backward[offset + c + 1];
+                } else {
+                    py = backward[offset + c - 1];
+                    y = py - 1;
+                }
+                int x = left + (y - top) + k;
+                int px = (d == 0 || y != py) ? x : x + 1;
+                int diagEndX = x;
+                while (x > left && y > top && equal(oldList.get(x - 1), newList.get(y - 1))) {
+                    x--;
+                    y--;
+                }
+                backward[offset + c] = y;
+                if (!odd && k >= -d && k <= d && x <= forward[offset + k]) {
+                    return new int[]{x, y, px, py, x, y, diagEndX - x};
+                }
+            }
+        }
+        throw new IllegalStateException("Diff failed, make sure the lists are not modified during the diff");
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
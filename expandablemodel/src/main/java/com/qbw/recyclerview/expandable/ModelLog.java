@@ -0,0 +1,59 @@
+package com.qbw.recyclerview.expandable;
+
+/**
+ * model模块不依赖android，日志通过Printer输出，没有设置Printer时不输出也不格式化。
+ * ExpandableAdapter会设置输出到XLog的Printer
+ */
+public final class ModelLog {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    public interface Printer {
+
+        void print(int priority, String message);
+    }
+
+    private static volatile Printer sPrinter;
+
+    private ModelLog() {
+    }
+
+    public static void setPrinter(Printer printer) {
+        sPrinter = printer;
+    }
+
+    public static Printer getPrinter() {
+        return sPrinter;
+    }
+
+    static void v(String format, Object... args) {
+        print(VERBOSE, format, args);
+    }
+
+    static void d(String format, Object... args) {
+        print(DEBUG, format, args);
+    }
+
+    static void i(String format, Object... args) {
+        print(INFO, format, args);
+    }
+
+    static void w(String format, Object... args) {
+        print(WARN, format, args);
+    }
+
+    static void e(String format, Object... args) {
+        print(ERROR, format, args);
+    }
+
+    private static void print(int priority, String format, Object... args) {
+        Printer printer = sPrinter;
+        if (printer != null) {
+            printer.print(priority, args.length == 0 ? format : String.format(format, args));
+        }
+    }
+}
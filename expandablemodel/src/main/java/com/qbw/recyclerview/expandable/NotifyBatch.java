@@ -0,0 +1,156 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * beginBatch/endBatch之间记录model发出的刷新通知，与上一条通知相邻或者重叠的合并成一条，
+ * endBatch时一次性发给ExpandableModelListener
+ */
+final class NotifyBatch {
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+    private static final int MOVE = 3;
+
+    private static final class Op {
+        final int mType;
+        int mPosition;
+        /**
+         * MOVE时是toPosition
+         */
+        int mCount;
+        /**
+         * CHANGE的payload
+         */
+        final Object mPayload;
+
+        Op(int type, int position, int count) {
+            this(type, position, count, null);
+        }
+
+        Op(int type, int position, int count, Object payload) {
+            mType = type;
+            mPosition = position;
+            mCount = count;
+            mPayload = payload;
+        }
+    }
+
+    private final List<Op> mOps = new ArrayList<>();
+    private boolean mDataSetChanged;
+
+    void addInsert(int position, int count) {
+        if (mDataSetChanged || count <= 0) {
+            return;
+        }
+        Op last = last();
+        if (last != null && last.mType == INSERT
+                && position >= last.mPosition && position <= last.mPosition + last.mCount) {
+            last.mCount += count;
+            return;
+        }
+        mOps.add(new Op(INSERT, position, count));
+    }
+
+    void addRemove(int position, int count) {
+        if (mDataSetChanged || count <= 0) {
+            return;
+        }
+        Op last = last();
+        if (last == null) {
+            mOps.add(new Op(REMOVE, position, count));
+        } else if (last.mType == REMOVE
+                && last.mPosition >= position && last.mPosition <= position + count) {
+            last.mPosition = position;
+            last.mCount += count;
+        } else if (last.mType == INSERT) {
+            int overlap = Math.min(position + count, last.mPosition + last.mCount) - Math.max(position, last.mPosition);
+            if (overlap <= 0) {
+                mOps.add(new Op(REMOVE, position, count));
+                return;
+            }
+            // 删掉了刚插入的item，这部分相互抵消，剩下的等价于先删除原有的item再插入剩余的item
+            int removeBefore = Math.max(0, last.mPosition - position);
+            int removeAfter = Math.max(0, position + count - (last.mPosition + last.mCount));
+            int insertCount = last.mCount - overlap;
+            int start = Math.min(position, last.mPosition);
+            mOps.remove(mOps.size() - 1);
+            addRemove(start, removeBefore + removeAfter);
+            addInsert(start, insertCount);
+        } else if (last.mType == CHANGE
+                && last.mPosition >= position && last.mPosition + last.mCount <= position + count) {
+            // 修改过的item又被删除了
+            mOps.remove(mOps.size() - 1);
+            addRemove(position, count);
+        } else {
+            mOps.add(new Op(REMOVE, position, count));
+        }
+    }
+
+    /**
+     * payload相同（equals）的相邻或者重叠的修改才会合并
+     */
+    void addChange(int position, int count, Object payload) {
+        if (mDataSetChanged || count <= 0) {
+            return;
+        }
+        Op last = last();
+        if (last != null && last.mType == CHANGE
+                && (payload == null ? last.mPayload == null : payload.equals(last.mPayload))
+                && position <= last.mPosition + last.mCount && last.mPosition <= position + count) {
+            int end = Math.max(position + count, last.mPosition + last.mCount);
+            last.mPosition = Math.min(position, last.mPosition);
+            last.mCount = end - last.mPosition;
+            return;
+        } else if (last != null && last.mType == INSERT
+                && position >= last.mPosition && position + count <= last.mPosition + last.mCount) {
+            // 刚插入的item还没有绑定过
+            return;
+        }
+        mOps.add(new Op(CHANGE, position, count, payload));
+    }
+
+    void addMove(int fromPosition, int toPosition) {
+        if (mDataSetChanged || fromPosition == toPosition) {
+            return;
+        }
+        mOps.add(new Op(MOVE, fromPosition, toPosition));
+    }
+
+    void setDataSetChanged() {
+        mOps.clear();
+        mDataSetChanged = true;
+    }
+
+    void dispatch(ExpandableModelListener listener) {
+        if (mDataSetChanged) {
+            mDataSetChanged = false;
+            listener.onDataSetChanged();
+            return;
+        }
+        for (int i = 0, size = mOps.size(); i < size; i++) {
+            Op op = mOps.get(i);
+            switch (op.mType) {
+                case INSERT:
+                    listener.onItemRangeInserted(op.mPosition, op.mCount);
+                    break;
+                case REMOVE:
+                    listener.onItemRangeRemoved(op.mPosition, op.mCount);
+                    break;
+                case CHANGE:
+                    listener.onItemRangeChanged(op.mPosition, op.mCount, op.mPayload);
+                    break;
+                case MOVE:
+                    listener.onItemMoved(op.mPosition, op.mCount);
+                    break;
+            }
+        }
+        mOps.clear();
+    }
+
+    private Op last() {
+        return mOps.isEmpty() ? null : mOps.get(mOps.size() - 1);
+    }
+}
@@ -0,0 +1,181 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick tree，保存每个group占用的item个数（group自身 + groupChild），
+ * 用于在O(logG)内完成 group position -> adapter position 的换算以及单个group大小的修改。
+ * 插入或删除group时需要整体平移，代价与ArrayList的插入删除相同，为O(G)。
+ */
+final class PrefixSumTree {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * 1-based，mTree[0]不使用
+     */
+    private int[] mTree;
+    private int mSize;
+
+    PrefixSumTree() {
+        mTree = new int[DEFAULT_CAPACITY + 1];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        Arrays.fill(mTree, 0, mSize + 1, 0);
+        mSize = 0;
+    }
+
+    /**
+     * @return 第index个元素的值
+     */
+    int get(int index) {
+        return prefixSum(index + 1) - prefixSum(index);
+    }
+
+    void set(int index, int value) {
+        add(index, value - get(index));
+    }
+
+    /**
+     * 第index个元素加上delta
+     */
+    void add(int index, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * @return 前count个元素之和
+     */
+    int prefixSum(int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    int sum() {
+        return prefixSum(mSize);
+    }
+
+    /**
+     * 在树上二分查找
+     *
+     * @param offset 从0开始的偏移量，取值范围[0, sum())
+     * @return 包含offset的元素的index，即满足prefixSum(index) <= offset的最大index；offset越界返回-1
+     */
+    int indexOf(int offset) {
+        if (offset < 0 || mSize == 0) {
+            return -1;
+        }
+        int index = 0;
+        int remain = offset;
+        for (int step = Integer.highestOneBit(mSize); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mSize && mTree[next] <= remain) {
+                index = next;
+                remain -= mTree[next];
+            }
+        }
+        return index < mSize ? index : -1;
+    }
+
+    /**
+     * 在末尾添加一个元素，O(logn)
+     */
+    void append(int value) {
+        ensureCapacity(mSize + 1);
+        int i = ++mSize;
+        mTree[i] = value + prefixSum(i - 1) - prefixSum(i - (i & -i));
+    }
+
+    void insert(int index, int value) {
+        ensureCapacity(mSize + 1);
+        toValues();
+        System.arraycopy(mTree, index + 1, mTree, index + 2, mSize - index);
+        mTree[index + 1] = value;
+        mSize++;
+        toTree();
+    }
+
+    void remove(int index) {
+        toValues();
+        System.arraycopy(mTree, index + 2, mTree, index + 1, mSize - index - 1);
+        mTree[mSize] = 0;
+        mSize--;
+        toTree();
+    }
+
+    /**
+     * 把from的元素移动到to，中间的元素依次平移一位，O(|from - to| * logn)
+     */
+    void move(int from, int to) {
+        int value = get(from);
+        if (from < to) {
+            for (int i = from; i < to; i++) {
+                set(i, get(i + 1));
+            }
+        } else {
+            for (int i = from; i > to; i--) {
+                set(i, get(i - 1));
+            }
+        }
+        set(to, value);
+    }
+
+    /**
+     * 一次删除所有removed[index]为true的元素，O(n)
+     */
+    void removeAll(boolean[] removed) {
+        toValues();
+        int write = 0;
+        for (int read = 0; read < mSize; read++) {
+            if (!removed[read]) {
+                mTree[++write] = mTree[read + 1];
+            }
+        }
+        Arrays.fill(mTree, write + 1, mSize + 1, 0);
+        mSize = write;
+        toTree();
+    }
+
+    private void ensureCapacity(int size) {
+        if (size + 1 > mTree.length) {
+            mTree = Arrays.copyOf(mTree, Math.max(size + 1, mTree.length * 2));
+        }
+    }
+
+    /**
+     * 原地把数组转换成Fenwick tree，O(n)
+     */
+    private void toTree() {
+        for (int i = 1; i <= mSize; i++) {
+            int parent = i + (i & -i);
+            if (parent <= mSize) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    /**
+     * toTree的逆操作，把Fenwick tree原地还原成普通数组，O(n)
+     */
+    private void toValues() {
+        for (int i = mSize; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent <= mSize) {
+                mTree[parent] -= mTree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一次性构建header、child、group（以及groupChild）、footer，可以在后台线程构建，
+ * 然后在主线程调用{@link ExpandableModel#setSections(SectionBuilder)}整体替换adapter的数据，只通知一次刷新。
+ * 一个SectionBuilder只能交给adapter一次，之后不能再修改
+ */
+public final class SectionBuilder<T> {
+
+    final Segment<T> mHeaders = new Segment<>(ItemIndex.HEADER, null);
+    final Segment<T> mChilds = new Segment<>(ItemIndex.CHILD, null);
+    final List<GroupNode<T>> mGroups = new ArrayList<>();
+    final Segment<T> mFooters = new Segment<>(ItemIndex.FOOTER, null);
+    final IntArray mGroupChildCount = new IntArray();
+    final PrefixSumTree mGroupSizeTree = new PrefixSumTree();
+
+    private final Set<T> mGroupSet = new HashSet<>();
+    boolean mConsumed;
+
+    public SectionBuilder<T> addHeader(T header) {
+        if (checkItem(header)) {
+            mHeaders.add(mHeaders.size(), header);
+        }
+        return this;
+    }
+
+    public SectionBuilder<T> addHeaders(List<T> headers) {
+        if (checkItems(headers)) {
+            mHeaders.addAll(mHeaders.size(), headers);
+        }
+        return this;
+    }
+
+    public SectionBuilder<T> addChild(T child) {
+        if (checkItem(child)) {
+            mChilds.add(mChilds.size(), child);
+        }
+        return this;
+    }
+
+    public SectionBuilder<T> addChilds(List<T> childs) {
+        if (checkItems(childs)) {
+            mChilds.addAll(mChilds.size(), childs);
+        }
+        return this;
+    }
+
+    public SectionBuilder<T> addGroup(T group) {
+        return addGroup(group, null, true);
+    }
+
+    public SectionBuilder<T> addGroup(T group, List<T> groupChilds) {
+        return addGroup(group, groupChilds, true);
+    }
+
+    /**
+     * @param expanded 是否展开，收起的group的groupChild不显示
+     */
+    public SectionBuilder<T> addGroup(T group, List<T> groupChilds, boolean expanded) {
+        if (!checkItem(group)) {
+            return this;
+        } else if (!mGroupSet.add(group)) {
+            ModelLog.e("Group is alread exist! You must use a different object to create a new group");
+            return this;
+        }
+        GroupNode<T> node = new GroupNode<>(group);
+        node.mPosition = mGroups.size();
+        node.mExpanded = expanded;
+        if (groupChilds != null && !groupChilds.isEmpty()) {
+            node.mChildren.addAll(0, groupChilds);
+        }
+        mGroups.add(node);
+        mGroupChildCount.add(node.mChildren.size());
+        mGroupSizeTree.append(node.size());
+        return this;
+    }
+
+    public SectionBuilder<T> addFooter(T footer) {
+        if (checkItem(footer)) {
+            mFooters.add(mFooters.size(), footer);
+        }
+        return this;
+    }
+
+    public SectionBuilder<T> addFooters(List<T> footers) {
+        if (checkItems(footers)) {
+            mFooters.addAll(mFooters.size(), footers);
+        }
+        return this;
+    }
+
+    private boolean checkItem(T item) {
+        if (mConsumed) {
+            ModelLog.e("SectionBuilder was already set to adapter");
+            return false;
+        } else if (item == null) {
+            ModelLog.e("Invalid item");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean checkItems(List<T> items) {
+        if (mConsumed) {
+            ModelLog.e("SectionBuilder was already set to adapter");
+            return false;
+        }
+        return items != null && !items.isEmpty();
+    }
+}
@@ -0,0 +1,263 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一段连续的item（header、child、footer各一段，每个group的groupChild各一段），
+ * 插入删除只需要移动这一段里面的元素，不会影响其它分组
+ */
+final class Segment<T> {
+
+    /**
+     * viewType还没有计算
+     */
+    static final int VIEW_TYPE_UNKNOWN = Integer.MIN_VALUE;
+
+    private ArrayList<T> mItems;
+    /**
+     * mItems被snapshot引用了，修改之前需要先复制一份
+     */
+    private boolean mShared;
+    /**
+     * 与mItems一一对应的viewType缓存
+     */
+    private final IntArray mViewTypes;
+
+    /**
+     * ItemIndex.HEADER、CHILD、GROUP_CHILD、FOOTER
+     */
+    private final int mSection;
+    private final GroupNode<T> mNode;
+
+    private ItemIndex<T> mItemIndex;
+
+    Segment(int section, GroupNode<T> node) {
+        mItems = new ArrayList<>();
+        mViewTypes = new IntArray();
+        mSection = section;
+        mNode = node;
+    }
+
+    void setItemIndex(ItemIndex<T> itemIndex) {
+        mItemIndex = itemIndex;
+        if (mItemIndex != null) {
+            for (int i = 0, size = mItems.size(); i < size; i++) {
+                mItemIndex.put(mItems.get(i), mSection, mNode, i);
+            }
+        }
+    }
+
+    /**
+     * 为这一段里面属于items的item重新建立索引，建立之后从items里面删除
+     */
+    void reindex(Set<T> items) {
+        for (int i = 0, size = mItems.size(); i < size && !items.isEmpty(); i++) {
+            T item = mItems.get(i);
+            if (items.remove(item)) {
+                mItemIndex.put(item, mSection, mNode, i);
+            }
+        }
+    }
+
+    int size() {
+        return mItems.size();
+    }
+
+    T get(int index) {
+        return mItems.get(index);
+    }
+
+    int getViewType(int index) {
+        return mViewTypes.get(index);
+    }
+
+    void setViewType(int index, int viewType) {
+        mViewTypes.set(index, viewType);
+    }
+
+    void invalidateViewTypes() {
+        for (int i = 0, size = mViewTypes.size(); i < size; i++) {
+            mViewTypes.set(i, VIEW_TYPE_UNKNOWN);
+        }
+    }
+
+    /**
+     * @return 不可修改的mItems，之后修改这个分组时会先复制
+     */
+    List<T> share() {
+        mShared = true;
+        return Collections.unmodifiableList(mItems);
+    }
+
+    private void ensureNotShared() {
+        if (mShared) {
+            mItems = new ArrayList<>(mItems);
+            mShared = false;
+        }
+    }
+
+    void set(int index, T item) {
+        ensureNotShared();
+        T old = mItems.set(index, item);
+        mViewTypes.set(index, VIEW_TYPE_UNKNOWN);
+        if (mItemIndex != null) {
+            mItemIndex.remove(old);
+            mItemIndex.put(item, mSection, mNode, index);
+        }
+    }
+
+    void add(int index, T item) {
+        ensureNotShared();
+        mItems.add(index, item);
+        mViewTypes.add(index, VIEW_TYPE_UNKNOWN);
+        if (mItemIndex != null) {
+            mItemIndex.put(item, mSection, mNode, index);
+            reindex(index + 1);
+        }
+    }
+
+    void addAll(int index, List<T> items) {
+        ensureNotShared();
+        mItems.addAll(index, items);
+        mViewTypes.add(index, items.size(), VIEW_TYPE_UNKNOWN);
+        if (mItemIndex != null) {
+            int size = items.size();
+            for (int i = 0; i < size; i++) {
+                mItemIndex.put(items.get(i), mSection, mNode, index + i);
+            }
+            reindex(index + size);
+        }
+    }
+
+    void remove(int index) {
+        ensureNotShared();
+        T old = mItems.remove(index);
+        mViewTypes.remove(index);
+        if (mItemIndex != null) {
+            mItemIndex.remove(old);
+            reindex(index);
+        }
+    }
+
+    /**
+     * 删除[fromIndex, toIndex)
+     */
+    void removeRange(int fromIndex, int toIndex) {
+        if (mShared && fromIndex == 0 && toIndex == mItems.size()) {
+            if (mItemIndex != null) {
+                for (int i = 0; i < toIndex; i++) {
+                    mItemIndex.remove(mItems.get(i));
+                }
+            }
+            mItems = new ArrayList<>();
+            mShared = false;
+            mViewTypes.clear();
+            return;
+        }
+        ensureNotShared();
+        List<T> range = mItems.subList(fromIndex, toIndex);
+        if (mItemIndex != null) {
+            for (int i = 0, size = range.size(); i < size; i++) {
+                mItemIndex.remove(range.get(i));
+            }
+        }
+        range.clear();
+        mViewTypes.removeRange(fromIndex, toIndex);
+        if (mItemIndex != null) {
+            reindex(fromIndex);
+        }
+    }
+
+    void clear() {
+        removeRange(0, mItems.size());
+    }
+
+    /**
+     * 一次遍历删除counts中的item，每个item删除前count个相等的（与依次调用indexOf + remove结果相同），O(n)
+     *
+     * @param runs 按顺序记录被删除的连续区间(fromIndex, count)，index是删除之前的位置
+     * @return 删除的个数
+     */
+    int removeAll(HashMap<T, Integer> counts, IntArray runs) {
+        int size = mItems.size();
+        int write = 0;
+        int firstRemoved = -1;
+        for (int read = 0; read < size; read++) {
+            T item = mItems.get(read);
+            if (takeCount(counts, item)) {
+                if (firstRemoved == -1) {
+                    firstRemoved = read;
+                    ensureNotShared();
+                }
+                if (mItemIndex != null) {
+                    mItemIndex.remove(item);
+                }
+                addRun(runs, read, 1);
+            } else if (firstRemoved != -1) {
+                mItems.set(write, item);
+                mViewTypes.set(write, mViewTypes.get(read));
+                write++;
+            } else {
+                write++;
+            }
+        }
+        if (firstRemoved == -1) {
+            return 0;
+        }
+        mItems.subList(write, size).clear();
+        mViewTypes.removeRange(write, size);
+        if (mItemIndex != null) {
+            reindex(firstRemoved);
+        }
+        return size - write;
+    }
+
+    /**
+     * @return item在counts里面还有剩余个数，并把个数减1
+     */
+    static <T> boolean takeCount(HashMap<T, Integer> counts, T item) {
+        Integer count = counts.get(item);
+        if (count == null) {
+            return false;
+        } else if (count == 1) {
+            counts.remove(item);
+        } else {
+            counts.put(item, count - 1);
+        }
+        return true;
+    }
+
+    /**
+     * [index, index + count)被删除，与上一个区间相邻时合并
+     */
+    static void addRun(IntArray runs, int index, int count) {
+        int size = runs.size();
+        if (size > 0 && runs.get(size - 2) + runs.get(size - 1) == index) {
+            runs.set(size - 1, runs.get(size - 1) + count);
+        } else {
+            runs.add(index);
+            runs.add(count);
+        }
+    }
+
+    int indexOf(T item) {
+        return mItems.indexOf(item);
+    }
+
+    List<T> subList(int fromIndex, int toIndex) {
+        return new ArrayList<>(mItems.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * 从fromIndex开始的item位置都变了
+     */
+    private void reindex(int fromIndex) {
+        for (int i = fromIndex, size = mItems.size(); i < size; i++) {
+            mItemIndex.move(mItems.get(i), i);
+        }
+    }
+}
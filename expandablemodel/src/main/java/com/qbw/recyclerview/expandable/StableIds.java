@@ -0,0 +1,165 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.HashMap;
+
+/**
+ * (分组, item的key) -> id，第一次获取时按顺序分配并缓存，不同分组里面key相同的item也不会得到相同的id。
+ * groupChild不区分所在的group，在group之间移动id不变；分页group的groupChild按位置分配id，加载前后、group变大前后id都不变。
+ * 缓存的id个数超过上限时，由model调用beginTrim/retain/endTrim丢弃已经不显示的item的id
+ */
+final class StableIds<T> {
+
+    private static final int SECTION_COUNT = ItemIndex.FOOTER + 1;
+    private static final int MIN_CAPACITY = 256;
+
+    /**
+     * 分页group的groupChild的id，由几段连续的id组成，group变大时在后面追加一段
+     */
+    private static final class PagedRange {
+        /**
+         * 每段第一个groupChild的位置，升序
+         */
+        final IntArray mStarts = new IntArray();
+        long[] mBaseIds = new long[2];
+        /**
+         * 已经分配了id的groupChild个数
+         */
+        int mCount;
+
+        void grow(int count, long baseId) {
+            int size = mStarts.size();
+            if (size == mBaseIds.length) {
+                long[] baseIds = new long[size * 2];
+                System.arraycopy(mBaseIds, 0, baseIds, 0, size);
+                mBaseIds = baseIds;
+            }
+            mStarts.add(mCount);
+            mBaseIds[size] = baseId;
+            mCount = count;
+        }
+
+        long getId(int index) {
+            int segment = mStarts.lowerBound(index + 1) - 1;
+            return mBaseIds[segment] + index - mStarts.get(segment);
+        }
+    }
+
+    private final ItemKeyProvider<T> mProvider;
+    private HashMap<Object, Long>[] mIds;
+    /**
+     * 分页group的key -> 为它的groupChild分配的id
+     */
+    private HashMap<Object, PagedRange> mPagedIds = new HashMap<>();
+    /**
+     * trim期间保存原来的缓存
+     */
+    private HashMap<Object, Long>[] mRetiredIds;
+    private HashMap<Object, PagedRange> mRetiredPagedIds;
+    private int mSize;
+    private int mCapacity = MIN_CAPACITY;
+    private long mNextId;
+
+    StableIds(ItemKeyProvider<T> provider) {
+        mProvider = provider;
+        mIds = newMaps();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static HashMap<Object, Long>[] newMaps() {
+        HashMap<Object, Long>[] maps = new HashMap[SECTION_COUNT];
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            maps[i] = new HashMap<>();
+        }
+        return maps;
+    }
+
+    Object getKey(T item) {
+        Object key = mProvider.getItemKey(item);
+        return key != null ? key : item;
+    }
+
+    /**
+     * @param section ItemIndex.HEADER、CHILD、GROUP、GROUP_CHILD、FOOTER
+     */
+    long getId(int section, T item) {
+        Object key = getKey(item);
+        Long id = mIds[section].get(key);
+        if (id == null) {
+            id = mNextId++;
+            mIds[section].put(key, id);
+            mSize++;
+        }
+        return id;
+    }
+
+    /**
+     * @param group      分页group
+     * @param index      groupChild在group里面的位置
+     * @param childCount group的groupChild个数，超过之前分配的个数时只为多出来的groupChild分配，已有的id不变
+     */
+    long getPagedId(T group, int index, int childCount) {
+        Object key = getKey(group);
+        PagedRange range = mPagedIds.get(key);
+        if (range == null) {
+            range = new PagedRange();
+            mPagedIds.put(key, range);
+            mSize++;
+        }
+        int count = Math.max(childCount, index + 1);
+        if (count > range.mCount) {
+            long baseId = mNextId;
+            mNextId += count - range.mCount;
+            range.grow(count, baseId);
+        }
+        return range.getId(index);
+    }
+
+    boolean needsTrim() {
+        return mSize > mCapacity;
+    }
+
+    void beginTrim() {
+        mRetiredIds = mIds;
+        mRetiredPagedIds = mPagedIds;
+        mIds = newMaps();
+        mPagedIds = new HashMap<>();
+        mSize = 0;
+    }
+
+    /**
+     * 保留正在显示的item的id
+     */
+    void retain(int section, T item) {
+        Object key = getKey(item);
+        Long id = mRetiredIds[section].get(key);
+        if (id != null && mIds[section].put(key, id) == null) {
+            mSize++;
+        }
+    }
+
+    void retainPaged(T group) {
+        Object key = getKey(group);
+        PagedRange range = mRetiredPagedIds.get(key);
+        if (range != null && mPagedIds.put(key, range) == null) {
+            mSize++;
+        }
+    }
+
+    /**
+     * @param itemCount adapter的item个数，缓存上限为它的两倍，trim的代价均摊到每次分配id上是O(1)
+     */
+    void endTrim(int itemCount) {
+        mRetiredIds = null;
+        mRetiredPagedIds = null;
+        mCapacity = Math.max(MIN_CAPACITY, Math.max(mSize, itemCount) * 2);
+    }
+
+    void clear() {
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            mIds[i].clear();
+        }
+        mPagedIds.clear();
+        mSize = 0;
+        mCapacity = MIN_CAPACITY;
+    }
+}
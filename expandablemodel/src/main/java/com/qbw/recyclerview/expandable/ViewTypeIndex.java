@@ -0,0 +1,116 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.Arrays;
+
+/**
+ * 一个分组（header、child、group、footer）里面 viewType -> 有序位置列表 的索引，
+ * 用于getXXXPositionByViewType，查找第一个、最后一个都是O(1)。
+ * 位置是在分组里面的位置（group是group position），要求item的viewType只和item本身有关。
+ */
+final class ViewTypeIndex {
+
+    private int[] mViewTypes = new int[4];
+    private IntArray[] mPositions = new IntArray[4];
+    private int mViewTypeCount;
+
+    /**
+     * [position, position + viewTypes.length)插入了新的item
+     */
+    void insert(int position, int[] viewTypes) {
+        int count = viewTypes.length;
+        for (int i = 0; i < mViewTypeCount; i++) {
+            IntArray positions = mPositions[i];
+            positions.offset(positions.lowerBound(position), count);
+        }
+        int[] typeIndexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            typeIndexes[i] = indexOf(viewTypes[i], true);
+        }
+        IntArray[] inserted = new IntArray[mViewTypeCount];
+        for (int i = 0; i < count; i++) {
+            IntArray positions = inserted[typeIndexes[i]];
+            if (positions == null) {
+                positions = inserted[typeIndexes[i]] = new IntArray();
+            }
+            positions.add(position + i);
+        }
+        for (int i = 0; i < mViewTypeCount; i++) {
+            if (inserted[i] != null) {
+                IntArray positions = mPositions[i];
+                positions.addAll(positions.lowerBound(position), inserted[i]);
+            }
+        }
+    }
+
+    /**
+     * 删除了[fromPosition, toPosition)的item
+     */
+    void remove(int fromPosition, int toPosition) {
+        int count = toPosition - fromPosition;
+        for (int i = 0; i < mViewTypeCount; i++) {
+            IntArray positions = mPositions[i];
+            int from = positions.lowerBound(fromPosition);
+            int to = positions.lowerBound(toPosition);
+            positions.removeRange(from, to);
+            positions.offset(from, -count);
+        }
+    }
+
+    /**
+     * position位置的item被替换了
+     */
+    void update(int position, int viewType) {
+        for (int i = 0; i < mViewTypeCount; i++) {
+            IntArray positions = mPositions[i];
+            int index = positions.lowerBound(position);
+            if (index < positions.size() && positions.get(index) == position) {
+                if (mViewTypes[i] == viewType) {
+                    return;
+                }
+                positions.remove(index);
+                break;
+            }
+        }
+        IntArray positions = positionsOf(viewType, true);
+        positions.add(positions.lowerBound(position), position);
+    }
+
+    /**
+     * @return viewType第一次出现的位置，没有返回-1
+     */
+    int first(int viewType) {
+        IntArray positions = positionsOf(viewType, false);
+        return positions == null || positions.size() == 0 ? -1 : positions.get(0);
+    }
+
+    /**
+     * @return viewType最后一次出现的位置，没有返回-1
+     */
+    int last(int viewType) {
+        IntArray positions = positionsOf(viewType, false);
+        return positions == null || positions.size() == 0 ? -1 : positions.get(positions.size() - 1);
+    }
+
+    private IntArray positionsOf(int viewType, boolean create) {
+        int index = indexOf(viewType, create);
+        return index == -1 ? null : mPositions[index];
+    }
+
+    private int indexOf(int viewType, boolean create) {
+        for (int i = 0; i < mViewTypeCount; i++) {
+            if (mViewTypes[i] == viewType) {
+                return i;
+            }
+        }
+        if (!create) {
+            return -1;
+        }
+        if (mViewTypeCount == mViewTypes.length) {
+            mViewTypes = Arrays.copyOf(mViewTypes, mViewTypeCount * 2);
+            mPositions = Arrays.copyOf(mPositions, mViewTypeCount * 2);
+        }
+        mViewTypes[mViewTypeCount] = viewType;
+        mPositions[mViewTypeCount] = new IntArray();
+        return mViewTypeCount++;
+    }
+}
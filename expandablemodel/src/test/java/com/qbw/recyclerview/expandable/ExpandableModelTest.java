@@ -0,0 +1,297 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 随机修改model，把通知应用到镜像列表上，检查镜像列表与model一致，
+ * 同时检查model的位置换算与按分组拼接出来的列表一致
+ */
+public class ExpandableModelTest {
+
+    private static final int SEEDS = 30;
+    private static final int STEPS = 300;
+
+    private Random mRandom;
+    private ExpandableModel<String> mModel;
+    private int mNextItem;
+
+    @Test
+    public void randomOperationsWithoutItemIndex() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            run(seed, false);
+        }
+    }
+
+    @Test
+    public void randomOperationsWithItemIndex() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            run(seed, true);
+        }
+    }
+
+    /**
+     * submitSections计算差异期间只通知修改的话，计算结果仍然有效（modCount不变），按差异通知而不是notifyDataSetChanged
+     */
+    @Test
+    public void changeNotifyKeepsSubmittedDiffValid() {
+        mModel = new ExpandableModel<>(new MirrorListener());
+        mModel.addHeader("h");
+        mModel.addGroup("g");
+        mModel.addGroupChild(0, "c");
+        mModel.snapshot();
+        int modCount = mModel.getModCount();
+        mModel.notifyHeaderChanged(0, "payload");
+        mModel.notifyGroupChanged(0, false, "payload");
+        mModel.notifyGroupChildChanged(0, 0);
+        mModel.invalidateItemViewType(0);
+        assertEquals(modCount, mModel.getModCount());
+
+        mModel.updateHeader(0, "h2");
+        assertTrue(modCount != mModel.getModCount());
+        modCount = mModel.getModCount();
+        mModel.updateGroupChild(0, 0, "c2");
+        assertTrue(modCount != mModel.getModCount());
+        modCount = mModel.getModCount();
+        mModel.collapseGroup(0);
+        assertTrue(modCount != mModel.getModCount());
+    }
+
+    /**
+     * expandAll、collapseAll在batch里面完成，每个有groupChild的group一条通知，全部在状态改完之后才发出
+     */
+    @Test
+    public void expandAllNotifiesAfterAllGroups() {
+        final List<Integer> itemCounts = new ArrayList<>();
+        MirrorListener mirror = new MirrorListener() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                super.onItemRangeInserted(positionStart, itemCount);
+                itemCounts.add(mModel.getItemCount());
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                super.onItemRangeRemoved(positionStart, itemCount);
+                itemCounts.add(mModel.getItemCount());
+            }
+        };
+        mModel = new ExpandableModel<>(mirror);
+        mModel.addHeader("h");
+        for (int g = 0; g < 4; g++) {
+            mModel.addGroup("g" + g);
+            for (int c = 0; g != 2 && c < 3; c++) {
+                mModel.addGroupChild(g, "g" + g + "c" + c);
+            }
+        }
+        mModel.collapseGroup(3);
+        mModel.addFooter("f");
+        mirror.verifyAndRebind("setup", flatten());
+
+        mirror.mNotifyCount = 0;
+        itemCounts.clear();
+        mModel.collapseAll();
+        assertEquals(2, mirror.mNotifyCount);
+        assertEquals(Arrays.asList(6, 6), itemCounts);
+        mirror.verifyAndRebind("collapse all", flatten());
+
+        mirror.mNotifyCount = 0;
+        itemCounts.clear();
+        mModel.expandAll();
+        assertEquals(3, mirror.mNotifyCount);
+        assertEquals(Arrays.asList(15, 15, 15), itemCounts);
+        mirror.verifyAndRebind("expand all", flatten());
+    }
+
+    @Test
+    public void moveLargeGroupNotifiesRanges() {
+        MirrorListener mirror = new MirrorListener();
+        mModel = new ExpandableModel<>(mirror);
+        mModel.addGroup("g0");
+        mModel.addGroup("g1");
+        mModel.addGroup("g2");
+        for (int i = 0; i < 20; i++) {
+            mModel.addGroupChild(0, "g0c" + i);
+        }
+        mModel.addGroupChild(2, "g2c0");
+        mirror.verifyAndRebind("setup", flatten());
+        mirror.mNotifyCount = 0;
+        mModel.moveGroup(0, 2);
+        assertEquals(2, mirror.mNotifyCount);
+        mirror.verifyAndRebind("move down", flatten());
+        mirror.mNotifyCount = 0;
+        mModel.moveGroup(1, 0);
+        assertEquals(2, mirror.mNotifyCount);
+        mirror.verifyAndRebind("move small group", flatten());
+    }
+
+    private void run(int seed, boolean itemIndexEnabled) {
+        mRandom = new Random(seed);
+        MirrorListener mirror = new MirrorListener();
+        mModel = new ExpandableModel<>(mirror);
+        mModel.setItemIndexEnabled(itemIndexEnabled);
+        mNextItem = 0;
+        for (int step = 0; step < STEPS; step++) {
+            String message = "seed " + seed + " step " + step;
+            if (mRandom.nextInt(10) == 0) {
+                mModel.beginBatch();
+                for (int i = 0, count = 2 + mRandom.nextInt(4); i < count; i++) {
+                    randomOperation();
+                }
+                mModel.endBatch();
+            } else {
+                randomOperation();
+            }
+            List<String> expected = flatten();
+            assertModelMatches(message, expected);
+            mirror.verifyAndRebind(message, expected);
+        }
+    }
+
+    private void randomOperation() {
+        int itemCount = mModel.getItemCount();
+        int headerCount = mModel.getHeaderCount();
+        int childCount = mModel.getChildCount();
+        int groupCount = mModel.getGroupCount();
+        int footerCount = mModel.getFooterCount();
+        int group = groupCount > 0 ? mRandom.nextInt(groupCount) : -1;
+        int groupChildCount = group != -1 ? mModel.getGroupChildCount(group) : 0;
+        switch (mRandom.nextInt(17)) {
+            case 0:
+                mModel.addHeader(mRandom.nextInt(headerCount + 1), newItem());
+                break;
+            case 1:
+                if (headerCount > 0) {
+                    mModel.removeHeader(mRandom.nextInt(headerCount));
+                }
+                break;
+            case 2:
+                mModel.addChild(mRandom.nextInt(childCount + 1), newItem());
+                break;
+            case 3:
+                if (childCount > 0) {
+                    mModel.removeChild(mRandom.nextInt(childCount));
+                }
+                break;
+            case 4:
+            case 5:
+                mModel.addGroup(mRandom.nextInt(groupCount + 1), newItem());
+                break;
+            case 6:
+                if (group != -1 && mRandom.nextInt(3) == 0) {
+                    mModel.removeGroup(group);
+                }
+                break;
+            case 7:
+            case 8:
+                if (group != -1) {
+                    mModel.addGroupChild(group, mRandom.nextInt(groupChildCount + 1), newItem());
+                }
+                break;
+            case 9:
+                if (groupChildCount > 0) {
+                    mModel.removeGroupChild(group, mRandom.nextInt(groupChildCount));
+                }
+                break;
+            case 10:
+                if (group != -1) {
+                    mModel.toggleGroup(group);
+                }
+                break;
+            case 11:
+                if (itemCount > 0) {
+                    mModel.updateItem(mRandom.nextInt(itemCount), newItem());
+                }
+                break;
+            case 12:
+                if (itemCount > 0) {
+                    mModel.swapItem(mRandom.nextInt(itemCount), mRandom.nextInt(itemCount));
+                }
+                break;
+            case 13:
+                if (group != -1) {
+                    mModel.moveGroup(group, mRandom.nextInt(groupCount));
+                }
+                break;
+            case 14:
+                if (groupChildCount > 0) {
+                    int toGroup = mRandom.nextInt(groupCount);
+                    int toGroupChildCount = mModel.getGroupChildCount(toGroup) - (toGroup == group ? 1 : 0);
+                    mModel.moveGroupChild(group,
+                            mRandom.nextInt(groupChildCount),
+                            toGroup,
+                            mRandom.nextInt(toGroupChildCount + 1));
+                }
+                break;
+            case 15:
+                mModel.addFooter(mRandom.nextInt(footerCount + 1), newItem());
+                break;
+            default:
+                if (footerCount > 0) {
+                    mModel.removeFooter(mRandom.nextInt(footerCount));
+                } else if (groupChildCount > 0) {
+                    mModel.clearGroupChild(group);
+                }
+                break;
+        }
+    }
+
+    private String newItem() {
+        return "i" + mNextItem++;
+    }
+
+    /**
+     * 按header、child、group（展开时加上groupChild）、footer的顺序拼接出来的列表
+     */
+    private List<String> flatten() {
+        List<String> items = new ArrayList<>();
+        addAll(items, mModel.getHeaders());
+        addAll(items, mModel.getChilds());
+        for (int g = 0; g < mModel.getGroupCount(); g++) {
+            items.add(mModel.getGroup(g));
+            if (mModel.isGroupExpanded(g)) {
+                for (int c = 0; c < mModel.getGroupChildCount(g); c++) {
+                    items.add(mModel.getGroupChild(g, c));
+                }
+            }
+        }
+        addAll(items, mModel.getFooters());
+        return items;
+    }
+
+    /**
+     * 分组为空时getHeaders等返回null
+     */
+    private static void addAll(List<String> items, List<String> section) {
+        if (section != null) {
+            items.addAll(section);
+        }
+    }
+
+    private void assertModelMatches(String message, List<String> expected) {
+        assertEquals(message, expected.size(), mModel.getItemCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message, expected.get(i), mModel.getItem(i));
+            assertEquals(message + " " + expected.get(i), i, mModel.getItemPosition(expected.get(i)));
+        }
+        int position = mModel.getHeaderCount() + mModel.getChildCount();
+        for (int g = 0; g < mModel.getGroupCount(); g++) {
+            assertEquals(message, position, mModel.convertGroupPosition(g));
+            assertEquals(message, g, mModel.getGroupPosition(position));
+            position++;
+            if (mModel.isGroupExpanded(g)) {
+                for (int c = 0; c < mModel.getGroupChildCount(g); c++) {
+                    assertEquals(message, position, mModel.convertGroupChildPosition(g, c));
+                    position++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ItemIndexTest {
+
+    @Test
+    public void putAndRemove() {
+        ItemIndex<String> index = new ItemIndex<>();
+        index.put("a", ItemIndex.CHILD, null, 3);
+        ItemIndex.Slot<String> slot = index.get("a");
+        assertEquals(ItemIndex.CHILD, slot.mSection);
+        assertEquals(3, slot.mIndex);
+        assertFalse(slot.mAmbiguous);
+        index.move("a", 1);
+        assertEquals(1, index.get("a").mIndex);
+        index.remove("a");
+        assertNull(index.get("a"));
+    }
+
+    @Test
+    public void duplicatesAreRemovedWithTheLastOne() {
+        ItemIndex<String> index = new ItemIndex<>();
+        index.put("a", ItemIndex.CHILD, null, 0);
+        index.put("a", ItemIndex.CHILD, null, 1);
+        assertTrue(index.get("a").mAmbiguous);
+        index.remove("a");
+        assertTrue(index.get("a").mAmbiguous);
+        index.remove("a");
+        assertNull(index.get("a"));
+        index.put("a", ItemIndex.FOOTER, null, 2);
+        assertFalse(index.get("a").mAmbiguous);
+        assertEquals(ItemIndex.FOOTER, index.get("a").mSection);
+    }
+
+    @Test
+    public void survivingDuplicateIsRelocated() {
+        ItemIndex<String> index = new ItemIndex<>();
+        index.put("a", ItemIndex.CHILD, null, 0);
+        index.put("a", ItemIndex.FOOTER, null, 1);
+        assertFalse(index.needsRelocate());
+        index.remove("a");
+        assertTrue(index.needsRelocate());
+        assertEquals(Collections.singleton("a"), index.takeRelocations());
+        assertFalse(index.needsRelocate());
+        assertNull(index.get("a"));
+    }
+
+    @Test
+    public void modelRelocatesSurvivingDuplicate() {
+        ExpandableModel<String> model = new ExpandableModel<>(new MirrorListener());
+        model.setItemIndexEnabled(true);
+        model.addHeader("a");
+        model.addChild("c0");
+        model.addGroup("g");
+        model.addGroupChild(0, "x");
+        model.addGroupChild(0, "a");
+        model.addFooter("a");
+        model.removeHeader(0);
+        model.removeFooter(0);
+        assertEquals(3, model.getItemPosition("a"));
+        assertEquals(3, model.indexOfGroupChild("a"));
+        model.addChild(0, "c1");
+        assertEquals(4, model.getItemPosition("a"));
+        model.removeGroupChild(0, 0);
+        assertEquals(3, model.getItemPosition("a"));
+    }
+
+    @Test
+    public void swapItemKeepsIndexExact() {
+        ExpandableModel<String> model = new ExpandableModel<>(new MirrorListener());
+        model.setItemIndexEnabled(true);
+        for (int i = 0; i < 5; i++) {
+            model.addChild("c" + i);
+        }
+        model.swapItem(0, 4);
+        assertEquals(0, model.getItemPosition("c4"));
+        assertEquals(4, model.getItemPosition("c0"));
+        model.clearChild();
+        assertEquals(-1, model.getItemPosition("c4"));
+        model.addHeader("c4");
+        assertEquals(0, model.getItemPosition("c4"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListDiffTest {
+
+    @Test
+    public void emptyLists() {
+        assertArrayEquals(new int[0], ListDiff.diff(Collections.<String>emptyList(), Collections.<String>emptyList()));
+        assertArrayEquals(new int[]{-1, -1}, ListDiff.diff(Arrays.asList("a", "b"), Collections.<String>emptyList()));
+        assertArrayEquals(new int[0], ListDiff.diff(Collections.<String>emptyList(), Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void insertRemoveAndKeep() {
+        assertArrayEquals(new int[]{0, 1, 2},
+                ListDiff.diff(Arrays.asList("a", "b", "c"), Arrays.asList("a", "b", "c")));
+        assertArrayEquals(new int[]{0, 2},
+                ListDiff.diff(Arrays.asList("a", "c"), Arrays.asList("a", "b", "c")));
+        assertArrayEquals(new int[]{0, -1, 1},
+                ListDiff.diff(Arrays.asList("a", "b", "c"), Arrays.asList("a", "c")));
+        assertArrayEquals(new int[]{-1, -1},
+                ListDiff.diff(Arrays.asList("a", "b"), Arrays.asList("c", "d")));
+    }
+
+    @Test
+    public void nullItems() {
+        assertArrayEquals(new int[]{0, -1, 1},
+                ListDiff.diff(Arrays.asList(null, "a", "b"), Arrays.asList(null, "b")));
+    }
+
+    @Test
+    public void randomListsGiveLongestCommonSubsequence() {
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            List<Integer> oldList = randomList(random);
+            List<Integer> newList = randomList(random);
+            int[] oldToNew = ListDiff.diff(oldList, newList);
+            assertEquals(oldList.size(), oldToNew.length);
+            int matched = 0;
+            int last = -1;
+            for (int i = 0; i < oldToNew.length; i++) {
+                if (oldToNew[i] == -1) {
+                    continue;
+                }
+                assertTrue("seed " + seed, oldToNew[i] > last);
+                assertEquals("seed " + seed, oldList.get(i), newList.get(oldToNew[i]));
+                last = oldToNew[i];
+                matched++;
+            }
+            assertEquals("seed " + seed, lcs(oldList, newList), matched);
+        }
+    }
+
+    private static List<Integer> randomList(Random random) {
+        int size = random.nextInt(30);
+        int alphabet = 1 + random.nextInt(6);
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(alphabet));
+        }
+        return list;
+    }
+
+    private static int lcs(List<Integer> a, List<Integer> b) {
+        int[][] dp = new int[a.size() + 1][b.size() + 1];
+        for (int i = 1; i <= a.size(); i++) {
+            for (int j = 1; j <= b.size(); j++) {
+                dp[i][j] = a.get(i - 1).equals(b.get(j - 1))
+                        ? dp[i - 1][j - 1] + 1
+                        : Math.max(dp[i - 1][j], dp[i][j - 1]);
+            }
+        }
+        return dp[a.size()][b.size()];
+    }
+}
@@ -0,0 +1,91 @@
+package com.qbw.recyclerview.expandable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 像RecyclerView一样把收到的通知依次应用到一个列表上，插入和修改的位置标记为DIRTY（需要重新绑定）
+ */
+class MirrorListener implements ExpandableModelListener {
+
+    static final Object DIRTY = new Object() {
+        @Override
+        public String toString() {
+            return "DIRTY";
+        }
+    };
+
+    final List<Object> mItems = new ArrayList<>();
+    int mNotifyCount;
+    boolean mDataSetChanged;
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        check(positionStart, 0, itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            mItems.add(positionStart, DIRTY);
+        }
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        check(positionStart, itemCount, itemCount);
+        mItems.subList(positionStart, positionStart + itemCount).clear();
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        check(positionStart, itemCount, itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            mItems.set(positionStart + i, DIRTY);
+        }
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onItemMoved(int fromPosition, int toPosition) {
+        check(fromPosition, 1, 1);
+        check(toPosition, 1, 1);
+        mItems.add(toPosition, mItems.remove(fromPosition));
+        mNotifyCount++;
+    }
+
+    @Override
+    public void onDataSetChanged() {
+        mDataSetChanged = true;
+        mNotifyCount++;
+    }
+
+    /**
+     * 没有标记为DIRTY的item必须和expected相同，之后把DIRTY替换成expected里面的item；
+     * 收到过onDataSetChanged时直接替换成expected
+     */
+    void verifyAndRebind(String message, List<?> expected) {
+        if (mDataSetChanged) {
+            mDataSetChanged = false;
+            mItems.clear();
+            mItems.addAll(expected);
+            return;
+        }
+        assertEquals(message + " " + mItems + " " + expected, expected.size(), mItems.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Object item = mItems.get(i);
+            if (item != DIRTY && !item.equals(expected.get(i))) {
+                fail(message + " position " + i + " expected " + expected.get(i) + " but was " + item);
+            }
+            mItems.set(i, expected.get(i));
+        }
+    }
+
+    private void check(int positionStart, int minCount, int itemCount) {
+        assertTrue("invalid count " + itemCount, itemCount >= minCount && itemCount > 0);
+        assertTrue("invalid position " + positionStart + " size " + mItems.size(),
+                positionStart >= 0 && positionStart + minCount <= mItems.size());
+    }
+}
@@ -0,0 +1,168 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NotifyBatchTest {
+
+    private static final class RecordingListener implements ExpandableModelListener {
+
+        final List<String> mOps = new ArrayList<>();
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mOps.add("insert " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mOps.add("remove " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            mOps.add("change " + positionStart + " " + itemCount + " " + payload);
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            mOps.add("move " + fromPosition + " " + toPosition);
+        }
+
+        @Override
+        public void onDataSetChanged() {
+            mOps.add("dataSetChanged");
+        }
+    }
+
+    private static List<String> dispatch(NotifyBatch batch) {
+        RecordingListener listener = new RecordingListener();
+        batch.dispatch(listener);
+        return listener.mOps;
+    }
+
+    @Test
+    public void adjacentInsertsAreMerged() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addInsert(5, 2);
+        batch.addInsert(7, 1);
+        batch.addInsert(5, 3);
+        assertEquals("[insert 5 6]", dispatch(batch).toString());
+        assertTrue(dispatch(batch).isEmpty());
+    }
+
+    @Test
+    public void removingInsertedItemsCancelsOut() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addInsert(3, 4);
+        batch.addRemove(4, 2);
+        assertEquals("[insert 3 2]", dispatch(batch).toString());
+
+        batch.addInsert(3, 2);
+        batch.addRemove(2, 4);
+        assertEquals("[remove 2 2]", dispatch(batch).toString());
+    }
+
+    @Test
+    public void adjacentRemovesAreMerged() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addRemove(10, 2);
+        batch.addRemove(8, 2);
+        batch.addRemove(8, 1);
+        assertEquals("[remove 8 5]", dispatch(batch).toString());
+    }
+
+    @Test
+    public void changesMergeOnlyWithSamePayload() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addChange(1, 2, null);
+        batch.addChange(3, 1, null);
+        batch.addChange(4, 1, "p");
+        batch.addChange(5, 1, "p");
+        assertEquals("[change 1 3 null, change 4 2 p]", dispatch(batch).toString());
+    }
+
+    @Test
+    public void changeOfInsertedItemIsDropped() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addInsert(2, 3);
+        batch.addChange(3, 1, null);
+        assertEquals("[insert 2 3]", dispatch(batch).toString());
+    }
+
+    @Test
+    public void removeOfChangedItemDropsTheChange() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addChange(2, 1, null);
+        batch.addRemove(1, 3);
+        assertEquals("[remove 1 3]", dispatch(batch).toString());
+    }
+
+    @Test
+    public void dataSetChangedWins() {
+        NotifyBatch batch = new NotifyBatch();
+        batch.addInsert(0, 1);
+        batch.setDataSetChanged();
+        batch.addRemove(0, 1);
+        batch.addMove(0, 1);
+        assertEquals("[dataSetChanged]", dispatch(batch).toString());
+        batch.addInsert(0, 1);
+        assertEquals("[insert 0 1]", dispatch(batch).toString());
+    }
+
+    /**
+     * 随机修改列表并记录通知，合并之后的通知应用到原来的列表上要得到相同的结果
+     */
+    @Test
+    public void randomOperationsReplayOntoMirror() {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            List<Object> items = new ArrayList<>();
+            int nextItem = 0;
+            for (int i = 0; i < 20; i++) {
+                items.add(nextItem++);
+            }
+            MirrorListener mirror = new MirrorListener();
+            mirror.mItems.addAll(items);
+            NotifyBatch batch = new NotifyBatch();
+            int steps = 1 + random.nextInt(15);
+            for (int step = 0; step < steps; step++) {
+                int size = items.size();
+                int op = random.nextInt(4);
+                if (size == 0 || op == 0) {
+                    int position = random.nextInt(size + 1);
+                    int count = 1 + random.nextInt(4);
+                    for (int i = 0; i < count; i++) {
+                        items.add(position + i, nextItem++);
+                    }
+                    batch.addInsert(position, count);
+                } else if (op == 1) {
+                    int position = random.nextInt(size);
+                    int count = 1 + random.nextInt(Math.min(4, size - position));
+                    items.subList(position, position + count).clear();
+                    batch.addRemove(position, count);
+                } else if (op == 2) {
+                    int position = random.nextInt(size);
+                    int count = 1 + random.nextInt(Math.min(4, size - position));
+                    for (int i = 0; i < count; i++) {
+                        items.set(position + i, nextItem++);
+                    }
+                    batch.addChange(position, count, random.nextBoolean() ? null : "p");
+                } else {
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    items.add(to, items.remove(from));
+                    batch.addMove(from, to);
+                }
+            }
+            batch.dispatch(mirror);
+            mirror.verifyAndRebind("seed " + seed, items);
+        }
+    }
+}
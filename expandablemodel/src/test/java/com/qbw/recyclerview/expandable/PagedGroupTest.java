@@ -0,0 +1,78 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PagedGroupTest {
+
+    private final List<Integer> mRequestedPages = new ArrayList<>();
+    private GroupNode<String> mNode;
+    private int mViewTypeCalls;
+
+    private ExpandableModel<String> newModel() {
+        ExpandableModel<String> model = new ExpandableModel<>(new MirrorListener());
+        model.setItemViewTypeProvider(new ItemViewTypeProvider<String>() {
+            @Override
+            public int getItemViewType(String item, int itemPosition) {
+                mViewTypeCalls++;
+                return item.length();
+            }
+        });
+        model.setGroupChildPageSource(new GroupChildPageSource<String>() {
+            @Override
+            public List<String> loadGroupChilds(String group, int startPosition, int loadCount) {
+                throw new AssertionError("loaded by the requester");
+            }
+        });
+        model.setGroupChildRequester(new GroupChildRequester<String>() {
+            @Override
+            public void load(GroupNode<String> node, GroupChildProvider<String> provider) {
+            }
+
+            @Override
+            public void loadPage(GroupNode<String> node, int page, GroupChildPageSource<String> pageSource) {
+                mNode = node;
+                mRequestedPages.add(page);
+            }
+        });
+        model.setGroupChildPageConfig(4, 2);
+        model.addPagedGroup(0, "g", 10, true);
+        return model;
+    }
+
+    @Test
+    public void unloadedChildHasPlaceholderViewType() {
+        ExpandableModel<String> model = newModel();
+        assertEquals(ExpandableModel.VIEW_TYPE_PAGED_PLACEHOLDER, model.getItemViewType(1));
+        assertEquals(0, mViewTypeCalls);
+        assertTrue(mRequestedPages.isEmpty());
+    }
+
+    @Test
+    public void viewTypeIsCachedAfterPageLoaded() {
+        ExpandableModel<String> model = newModel();
+        assertNull(model.getItem(1));
+        assertEquals(0, (int) mRequestedPages.get(0));
+        List<String> page = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            page.add("c" + i);
+        }
+        int modCount = model.getModCount();
+        model.onGroupChildPageLoaded(mNode, mNode.mPages.mGeneration, 0, page);
+        // 页加载完成只通知修改，不会让正在计算的submitSections失效
+        assertEquals(modCount, model.getModCount());
+        int groupViewTypeCalls = mViewTypeCalls;
+        assertEquals(2, model.getItemViewType(1));
+        assertEquals(2, model.getItemViewType(1));
+        assertEquals(groupViewTypeCalls + 1, mViewTypeCalls);
+        model.invalidateItemViewTypes();
+        assertEquals(2, model.getItemViewType(1));
+        assertEquals(groupViewTypeCalls + 2, mViewTypeCalls);
+    }
+}
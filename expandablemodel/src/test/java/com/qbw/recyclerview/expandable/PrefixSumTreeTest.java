@@ -0,0 +1,122 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrefixSumTreeTest {
+
+    @Test
+    public void appendAndQuery() {
+        PrefixSumTree tree = new PrefixSumTree();
+        tree.append(1);
+        tree.append(3);
+        tree.append(2);
+        assertEquals(3, tree.size());
+        assertEquals(6, tree.sum());
+        assertEquals(4, tree.prefixSum(2));
+        assertEquals(3, tree.get(1));
+        assertEquals(0, tree.indexOf(0));
+        assertEquals(1, tree.indexOf(1));
+        assertEquals(1, tree.indexOf(3));
+        assertEquals(2, tree.indexOf(4));
+        assertEquals(-1, tree.indexOf(6));
+        assertEquals(-1, tree.indexOf(-1));
+    }
+
+    @Test
+    public void indexOfSkipsEmptyElements() {
+        PrefixSumTree tree = new PrefixSumTree();
+        tree.append(2);
+        tree.append(0);
+        tree.append(0);
+        tree.append(1);
+        assertEquals(0, tree.indexOf(1));
+        assertEquals(3, tree.indexOf(2));
+    }
+
+    @Test
+    public void clear() {
+        PrefixSumTree tree = new PrefixSumTree();
+        for (int i = 0; i < 40; i++) {
+            tree.append(i);
+        }
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.sum());
+        tree.append(5);
+        assertEquals(5, tree.sum());
+        assertEquals(0, tree.indexOf(4));
+    }
+
+    @Test
+    public void randomOperationsMatchList() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            PrefixSumTree tree = new PrefixSumTree();
+            List<Integer> values = new ArrayList<>();
+            for (int step = 0; step < 500; step++) {
+                int size = values.size();
+                int op = random.nextInt(7);
+                if (size == 0 || op == 0) {
+                    int value = random.nextInt(5);
+                    tree.append(value);
+                    values.add(value);
+                } else if (op == 1) {
+                    int index = random.nextInt(size + 1);
+                    int value = random.nextInt(5);
+                    tree.insert(index, value);
+                    values.add(index, value);
+                } else if (op == 2) {
+                    int index = random.nextInt(size);
+                    tree.remove(index);
+                    values.remove(index);
+                } else if (op == 3) {
+                    int index = random.nextInt(size);
+                    int value = random.nextInt(5);
+                    tree.set(index, value);
+                    values.set(index, value);
+                } else if (op == 4) {
+                    int index = random.nextInt(size);
+                    int delta = random.nextInt(3);
+                    tree.add(index, delta);
+                    values.set(index, values.get(index) + delta);
+                } else if (op == 5) {
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    tree.move(from, to);
+                    values.add(to, values.remove(from));
+                } else {
+                    boolean[] removed = new boolean[size];
+                    for (int i = size - 1; i >= 0; i--) {
+                        removed[i] = random.nextInt(4) == 0;
+                        if (removed[i]) {
+                            values.remove(i);
+                        }
+                    }
+                    tree.removeAll(removed);
+                }
+                assertMatches("seed " + seed + " step " + step, values, tree);
+            }
+        }
+    }
+
+    private static void assertMatches(String message, List<Integer> values, PrefixSumTree tree) {
+        assertEquals(message, values.size(), tree.size());
+        int sum = 0;
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(message, sum, tree.prefixSum(i));
+            assertEquals(message, (int) values.get(i), tree.get(i));
+            for (int offset = sum; offset < sum + values.get(i); offset++) {
+                assertEquals(message, i, tree.indexOf(offset));
+            }
+            sum += values.get(i);
+        }
+        assertEquals(message, sum, tree.sum());
+        assertEquals(message, -1, tree.indexOf(sum));
+    }
+}
@@ -0,0 +1,96 @@
+package com.qbw.recyclerview.expandable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StableIdsTest {
+
+    private static final ItemKeyProvider<String> KEY_PROVIDER = new ItemKeyProvider<String>() {
+        @Override
+        public Object getItemKey(String item) {
+            return null;
+        }
+    };
+
+    @Test
+    public void sectionsDoNotShareIds() {
+        StableIds<String> ids = new StableIds<>(KEY_PROVIDER);
+        long header = ids.getId(ItemIndex.HEADER, "a");
+        long footer = ids.getId(ItemIndex.FOOTER, "a");
+        assertTrue(header != footer);
+        assertEquals(header, ids.getId(ItemIndex.HEADER, "a"));
+    }
+
+    @Test
+    public void pagedIdsDoNotDependOnLoading() {
+        StableIds<String> ids = new StableIds<>(KEY_PROVIDER);
+        long first = ids.getPagedId("g", 0, 10);
+        assertEquals(first + 9, ids.getPagedId("g", 9, 10));
+        assertEquals(first, ids.getPagedId("g", 0, 10));
+        assertTrue(ids.getPagedId("h", 0, 10) > first + 9);
+    }
+
+    @Test
+    public void pagedIdsSurviveGrowth() {
+        StableIds<String> ids = new StableIds<>(KEY_PROVIDER);
+        long first = ids.getPagedId("g", 0, 10);
+        long other = ids.getPagedId("h", 0, 10);
+        long grown = ids.getPagedId("g", 15, 20);
+        assertTrue(grown > other + 9);
+        assertEquals(first, ids.getPagedId("g", 0, 20));
+        assertEquals(first + 9, ids.getPagedId("g", 9, 20));
+        assertEquals(grown - 5, ids.getPagedId("g", 10, 20));
+        ids.getPagedId("g", 24, 25);
+        assertEquals(first + 9, ids.getPagedId("g", 9, 25));
+        assertEquals(grown, ids.getPagedId("g", 15, 25));
+        assertEquals(other, ids.getPagedId("h", 0, 10));
+    }
+
+    @Test
+    public void trimKeepsRetainedIds() {
+        StableIds<String> ids = new StableIds<>(KEY_PROVIDER);
+        long kept = ids.getId(ItemIndex.CHILD, "kept");
+        long paged = ids.getPagedId("g", 3, 5);
+        for (int i = 0; !ids.needsTrim(); i++) {
+            ids.getId(ItemIndex.CHILD, "removed" + i);
+        }
+        ids.beginTrim();
+        ids.retain(ItemIndex.CHILD, "kept");
+        ids.retainPaged("g");
+        ids.endTrim(2);
+        assertFalse(ids.needsTrim());
+        assertEquals(kept, ids.getId(ItemIndex.CHILD, "kept"));
+        assertEquals(paged, ids.getPagedId("g", 3, 5));
+        assertTrue(ids.getId(ItemIndex.CHILD, "removed0") > paged);
+    }
+
+    @Test
+    public void groupChildKeepsIdWhenMovedToAnotherGroup() {
+        ExpandableModel<String> model = new ExpandableModel<>(new MirrorListener());
+        model.setItemKeyProvider(KEY_PROVIDER);
+        model.addGroup("g0");
+        model.addGroup("g1");
+        model.addGroupChild(0, "c0");
+        model.addGroupChild(1, "c1");
+        long id = model.getItemId(model.convertGroupChildPosition(0, 0));
+        model.moveGroupChild(0, 0, 1, 1);
+        assertEquals(id, model.getItemId(model.convertGroupChildPosition(1, 1)));
+    }
+
+    @Test
+    public void visibleIdsSurviveTrim() {
+        ExpandableModel<String> model = new ExpandableModel<>(new MirrorListener());
+        model.setItemKeyProvider(KEY_PROVIDER);
+        model.addHeader("h");
+        long id = model.getItemId(0);
+        for (int i = 0; i < 10000; i++) {
+            model.addChild("c" + i);
+            model.getItemId(1);
+            model.removeChild(0);
+        }
+        assertEquals(id, model.getItemId(0));
+    }
+}